@@ -0,0 +1,78 @@
+package org.bedepay.rareItems.benchmark;
+
+import net.kyori.adventure.text.format.TextColor;
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityRegistry;
+import org.bedepay.rareItems.rarity.RarityRoller;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Редкости и шансы из config.yml по умолчанию для бенчмарков
+ */
+public final class Fixtures {
+
+    private static List<Rarity> rarities;
+    private static RarityRoller craftRoller;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Поднимает заглушку сервера и индексирует редкости (один раз на JVM)
+     */
+    public static synchronized void init() {
+        if (rarities != null) {
+            return;
+        }
+        StandInServer.install();
+
+        rarities = List.of(
+                rarity("common", "Обычный", "#FFFFFF", 0.25, 0.25, 0.0, 0.0, 0.5, 0.0, Map.of(), 0, 0.0),
+                rarity("uncommon", "Необычный", "#55FF55", 0.5, 0.5, 0.0, 0.0, 1.0, 0.0, Map.of(), 0, 0.0),
+                rarity("rare", "Редкий", "#5555FF", 1.0, 1.0, 0.0, 0.5, 2.0, 1.0, Map.of(), 8000, 15.0),
+                rarity("epic", "Эпический", "#AA00FF", 1.5, 1.5, 0.01, 1.0, 3.0, 1.0,
+                        Map.of(PotionEffectType.SLOW, 0), 6000, 20.0),
+                rarity("legendary", "Легендарный", "#FFD700", 2.0, 2.0, 0.02, 1.5, 4.0, 2.0,
+                        Map.of(PotionEffectType.WEAKNESS, 0), 5000, 25.0),
+                rarity("mythic", "Мифический", "#FF69B4", 2.5, 2.5, 0.03, 2.0, 6.0, 3.0,
+                        Map.of(PotionEffectType.POISON, 0, PotionEffectType.WEAKNESS, 0), 4000, 30.0),
+                rarity("divine", "Божественный", "#00FFFF", 3.0, 3.0, 0.04, 2.5, 8.0, 4.0,
+                        Map.of(PotionEffectType.WITHER, 0, PotionEffectType.POISON, 1,
+                                PotionEffectType.WEAKNESS, 1), 3000, 40.0),
+                rarity("celestial", "Небесный", "#FF1493", 3.5, 3.5, 0.05, 3.0, 10.0, 5.0,
+                        Map.of(PotionEffectType.WITHER, 1, PotionEffectType.POISON, 1,
+                                PotionEffectType.WEAKNESS, 1, PotionEffectType.BLINDNESS, 0), 2000, 50.0)
+        );
+        Map<String, Double> craftChances = Map.of(
+                "celestial", 0.02,
+                "divine", 0.08,
+                "mythic", 0.2,
+                "legendary", 0.6,
+                "epic", 1.5,
+                "rare", 3.5,
+                "uncommon", 7.0,
+                "common", 10.0
+        );
+        RarityRegistry.publish(rarities, craftChances);
+
+        craftRoller = RarityRoller.compile(craftChances, rarities);
+    }
+
+    public static Rarity rarity(String id) {
+        return RarityRegistry.current().byId(id);
+    }
+
+    public static RarityRoller craftRoller() {
+        return craftRoller;
+    }
+
+    private static Rarity rarity(String id, String name, String color, double damage, double armor, double speed,
+                                 double toughness, double health, double luck,
+                                 Map<PotionEffectType, Integer> onHitEffects, int cooldown, double chance) {
+        return new Rarity(id, name, TextColor.fromHexString(color), damage, armor, speed, toughness, 0.0,
+                health, luck, List.of(), onHitEffects, cooldown, chance, "NONE", "NONE", Map.of());
+    }
+}
@@ -0,0 +1,93 @@
+package org.bedepay.rareItems.benchmark;
+
+import net.kyori.adventure.text.Component;
+import org.bedepay.rareItems.manager.RarityManager;
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.util.ItemUtil;
+import org.bedepay.rareItems.util.MaterialTypeChecker;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути плагина: применение редкости, чтение редкости, бросок шанса крафта,
+ * проверка типа материала и сообщение о редкости.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RarityBenchmark {
+
+    @Param({"DIAMOND_SWORD", "IRON_CHESTPLATE"})
+    public String material;
+
+    @Param({"epic", "celestial"})
+    public String rarityId;
+
+    private Material type;
+    private Rarity rarity;
+    private ItemStack plainItem;
+    private ItemStack rareItem;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.init();
+        type = Material.valueOf(material);
+        rarity = Fixtures.rarity(rarityId);
+        plainItem = new ItemStack(type);
+        rareItem = ItemUtil.applyRarity(plainItem, rarity);
+    }
+
+    /**
+     * Полное оформление предмета (как при крафте или выдаче командой)
+     */
+    @Benchmark
+    public ItemStack applyRarity() {
+        return ItemUtil.applyRarity(plainItem, rarity);
+    }
+
+    /**
+     * Повторное чтение того же предмета в пределах тика (попадание в кэш)
+     */
+    @Benchmark
+    public Rarity getRaritySameTick() {
+        return ItemUtil.getRarity(rareItem);
+    }
+
+    /**
+     * Чтение редкости в новом тике (промах кэша, чтение PDC)
+     */
+    @Benchmark
+    public Rarity getRarityNewTick() {
+        StandInServer.nextTick();
+        return ItemUtil.getRarity(rareItem);
+    }
+
+    /**
+     * Бросок шанса крафта - CraftListener.selectRarity делегирует в RarityRoller
+     */
+    @Benchmark
+    public Rarity rollCraftRarity() {
+        return Fixtures.craftRoller().roll();
+    }
+
+    @Benchmark
+    public boolean isWeaponOrArmor() {
+        return MaterialTypeChecker.isWeaponOrArmor(type);
+    }
+
+    @Benchmark
+    public Component createRarityMessage() {
+        return RarityManager.createRarityMessage(rarity, "Вы создали предмет!");
+    }
+}
@@ -0,0 +1,353 @@
+package org.bedepay.rareItems.benchmark;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
+import org.bukkit.UnsafeValues;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Минимальная замена сервера Bukkit для запуска бенчмарков вне сервера.
+ * <p>
+ * Реализует только то, чего касаются горячие пути плагина: фабрику меты,
+ * PersistentDataContainer, стандартные атрибуты материалов и номер тика.
+ * Мета и контейнер данных - простые HashMap, поэтому абсолютные числа ниже
+ * серверных, но сравнивать версии кода между собой они позволяют.
+ */
+public final class StandInServer {
+
+    private static final AtomicInteger TICK = new AtomicInteger();
+    private static boolean installed;
+
+    private StandInServer() {
+    }
+
+    /**
+     * Устанавливает заглушку как Bukkit.getServer() (один раз на JVM)
+     */
+    public static synchronized void install() {
+        if (installed || Bukkit.getServer() != null) {
+            installed = true;
+            return;
+        }
+
+        Logger logger = Logger.getLogger("StandInServer");
+        ItemFactory itemFactory = proxy(ItemFactory.class, StandInServer::itemFactory);
+        UnsafeValues unsafe = proxy(UnsafeValues.class, StandInServer::unsafe);
+
+        Server server = proxy(Server.class, (self, method, args) -> switch (method.getName()) {
+            case "getLogger" -> logger;
+            case "getItemFactory" -> itemFactory;
+            case "getUnsafe" -> unsafe;
+            case "getCurrentTick" -> TICK.get();
+            case "getName" -> "StandIn";
+            case "getVersion", "getBukkitVersion", "getMinecraftVersion" -> "1.20.4-R0.1-SNAPSHOT";
+            default -> defaultValue(method.getReturnType());
+        });
+
+        try {
+            Bukkit.setServer(server);
+        } catch (RuntimeException e) {
+            // setServer пишет версию в лог - ошибка оформления не мешает работе заглушки
+            if (Bukkit.getServer() == null) {
+                throw e;
+            }
+        }
+        installed = true;
+    }
+
+    /**
+     * Переходит к следующему тику (сбрасывает покадровые кэши плагина)
+     */
+    public static void nextTick() {
+        TICK.incrementAndGet();
+    }
+
+    // ================================
+    // ItemFactory
+    // ================================
+
+    private static Object itemFactory(Object self, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "getItemMeta" -> newMeta(new MetaState());
+            case "isApplicable" -> true;
+            case "equals" -> args.length == 2
+                    ? Objects.equals(stateOf((ItemMeta) args[0]), stateOf((ItemMeta) args[1]))
+                    : self == args[0];
+            case "asMetaFor" -> args[0];
+            case "updateMaterial" -> args[1];
+            default -> defaultValue(method.getReturnType());
+        };
+    }
+
+    /**
+     * Пустая мета равна отсутствующей - так же считает сервер
+     */
+    private static MetaState stateOf(ItemMeta meta) {
+        if (meta == null) {
+            return new MetaState();
+        }
+        return ((MetaHandler) Proxy.getInvocationHandler(meta)).state;
+    }
+
+    private static ItemMeta newMeta(MetaState state) {
+        return (ItemMeta) Proxy.newProxyInstance(StandInServer.class.getClassLoader(),
+                new Class<?>[]{ItemMeta.class}, new MetaHandler(state));
+    }
+
+    /**
+     * Состояние меты: только поля, которые меняет плагин
+     */
+    private static final class MetaState {
+        Component displayName;
+        List<Component> lore;
+        final Map<NamespacedKey, Object> data = new HashMap<>();
+        final ArrayListMultimap<Attribute, AttributeModifier> modifiers = ArrayListMultimap.create();
+        PersistentDataContainer container;
+
+        MetaState copy() {
+            MetaState copy = new MetaState();
+            copy.displayName = displayName;
+            copy.lore = lore == null ? null : new ArrayList<>(lore);
+            copy.data.putAll(data);
+            copy.modifiers.putAll(modifiers);
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MetaState other
+                    && Objects.equals(displayName, other.displayName)
+                    && Objects.equals(lore, other.lore)
+                    && data.equals(other.data)
+                    && modifiers.equals(other.modifiers);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(displayName, lore, data, modifiers);
+        }
+
+        PersistentDataContainer container() {
+            if (container == null) {
+                container = proxy(PersistentDataContainer.class, this::dataContainer);
+            }
+            return container;
+        }
+
+        private Object dataContainer(Object self, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "set" -> {
+                    data.put((NamespacedKey) args[0], args[2]);
+                    yield null;
+                }
+                case "get" -> data.get((NamespacedKey) args[0]);
+                case "getOrDefault" -> data.getOrDefault((NamespacedKey) args[0], args[2]);
+                case "has" -> args.length == 1
+                        ? data.containsKey((NamespacedKey) args[0])
+                        : hasTyped((NamespacedKey) args[0], (PersistentDataType<?, ?>) args[1]);
+                case "remove" -> {
+                    data.remove((NamespacedKey) args[0]);
+                    yield null;
+                }
+                case "isEmpty" -> data.isEmpty();
+                case "getKeys" -> java.util.Set.copyOf(data.keySet());
+                default -> defaultValue(method.getReturnType());
+            };
+        }
+
+        private boolean hasTyped(NamespacedKey key, PersistentDataType<?, ?> type) {
+            Object value = data.get(key);
+            return value != null && type.getComplexType().isInstance(value);
+        }
+    }
+
+    private static final class MetaHandler implements InvocationHandler {
+        final MetaState state;
+
+        MetaHandler(MetaState state) {
+            this.state = state;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object self, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "displayName" -> {
+                    if (args == null) {
+                        yield state.displayName;
+                    }
+                    state.displayName = (Component) args[0];
+                    yield null;
+                }
+                case "hasDisplayName" -> state.displayName != null;
+                case "lore" -> {
+                    if (args == null) {
+                        yield state.lore == null ? null : new ArrayList<>(state.lore);
+                    }
+                    state.lore = args[0] == null ? null : new ArrayList<>((List<Component>) args[0]);
+                    yield null;
+                }
+                case "hasLore" -> state.lore != null && !state.lore.isEmpty();
+                case "getPersistentDataContainer" -> state.container();
+                case "hasAttributeModifiers" -> !state.modifiers.isEmpty();
+                case "getAttributeModifiers" -> {
+                    if (args == null) {
+                        yield state.modifiers.isEmpty() ? null : ImmutableMultimap.copyOf(state.modifiers);
+                    }
+                    if (args[0] instanceof Attribute attribute) {
+                        yield List.copyOf(state.modifiers.get(attribute));
+                    }
+                    yield ImmutableMultimap.copyOf(state.modifiers);
+                }
+                case "addAttributeModifier" -> state.modifiers.put((Attribute) args[0], (AttributeModifier) args[1]);
+                case "removeAttributeModifier" -> {
+                    if (args[0] instanceof Attribute attribute && args.length == 1) {
+                        yield !state.modifiers.removeAll(attribute).isEmpty();
+                    }
+                    if (args.length == 2) {
+                        yield state.modifiers.remove(args[0], args[1]);
+                    }
+                    yield false;
+                }
+                case "clone" -> newMeta(state.copy());
+                case "equals" -> args[0] instanceof ItemMeta other && Proxy.isProxyClass(other.getClass())
+                        && state.equals(stateOf(other));
+                case "hashCode" -> state.hashCode();
+                case "toString" -> "StandInMeta" + state.data.keySet();
+                default -> defaultValue(method.getReturnType());
+            };
+        }
+    }
+
+    // ================================
+    // UnsafeValues
+    // ================================
+
+    private static final UUID DAMAGE_ID = UUID.fromString("CB3F55D3-645C-4F38-A497-9C13A33DB5CF");
+    private static final UUID SPEED_ID = UUID.fromString("FA233E1C-4180-4865-B01B-BCCE9785ACA3");
+    private static final UUID ARMOR_ID = UUID.fromString("845DB27C-C624-495F-8C9F-6020A9A58B6B");
+
+    private static Object unsafe(Object self, Method method, Object[] args) {
+        if (method.getName().equals("getDefaultAttributeModifiers") && args.length == 2) {
+            return defaultModifiers((Material) args[0], (EquipmentSlot) args[1]);
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    /**
+     * Приближенные ванильные атрибуты для мечей, топоров, трезубца и брони
+     */
+    private static Multimap<Attribute, AttributeModifier> defaultModifiers(Material material, EquipmentSlot slot) {
+        String name = material.name();
+        ImmutableMultimap.Builder<Attribute, AttributeModifier> builder = ImmutableMultimap.builder();
+
+        if (slot == EquipmentSlot.HAND) {
+            if (name.endsWith("_SWORD")) {
+                weapon(builder, 6.0, -2.4);
+            } else if (name.endsWith("_AXE")) {
+                weapon(builder, 8.0, -3.0);
+            } else if (material == Material.TRIDENT) {
+                weapon(builder, 8.0, -2.9);
+            }
+            return builder.build();
+        }
+
+        EquipmentSlot armorSlot = name.endsWith("_HELMET") ? EquipmentSlot.HEAD
+                : name.endsWith("_CHESTPLATE") ? EquipmentSlot.CHEST
+                : name.endsWith("_LEGGINGS") ? EquipmentSlot.LEGS
+                : name.endsWith("_BOOTS") ? EquipmentSlot.FEET
+                : null;
+        if (armorSlot == slot) {
+            double armor = switch (slot) {
+                case HEAD, FEET -> 3.0;
+                case CHEST -> 8.0;
+                default -> 6.0;
+            };
+            builder.put(Attribute.GENERIC_ARMOR,
+                    new AttributeModifier(ARMOR_ID, "Armor modifier", armor, AttributeModifier.Operation.ADD_NUMBER, slot));
+            if (name.startsWith("DIAMOND_") || name.startsWith("NETHERITE_")) {
+                builder.put(Attribute.GENERIC_ARMOR_TOUGHNESS,
+                        new AttributeModifier(ARMOR_ID, "Armor toughness", 2.0, AttributeModifier.Operation.ADD_NUMBER, slot));
+            }
+        }
+        return builder.build();
+    }
+
+    private static void weapon(ImmutableMultimap.Builder<Attribute, AttributeModifier> builder, double damage, double speed) {
+        builder.put(Attribute.GENERIC_ATTACK_DAMAGE, new AttributeModifier(DAMAGE_ID, "Weapon modifier",
+                damage, AttributeModifier.Operation.ADD_NUMBER, EquipmentSlot.HAND));
+        builder.put(Attribute.GENERIC_ATTACK_SPEED, new AttributeModifier(SPEED_ID, "Weapon modifier",
+                speed, AttributeModifier.Operation.ADD_NUMBER, EquipmentSlot.HAND));
+    }
+
+    // ================================
+    // Вспомогательное
+    // ================================
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StandInServer.class.getClassLoader(), new Class<?>[]{type},
+                (self, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "equals" -> self == args[0];
+                            case "hashCode" -> System.identityHashCode(self);
+                            default -> type.getSimpleName() + "@StandIn";
+                        };
+                    }
+                    return handler.invoke(self, method, args);
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,70 @@
+package org.bedepay.rareItems.util;
+
+import net.kyori.adventure.text.Component;
+import org.bedepay.rareItems.benchmark.Fixtures;
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bukkit.Material;
+import org.bukkit.attribute.Attribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка названия и описания без шаблонов - то, что applyRarity делал на каждый вызов до ItemTemplates.
+ * Лежит в пакете util ради доступа к package-private методам ItemUtil.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoreBenchmark {
+
+    @Param({"DIAMOND_SWORD", "IRON_CHESTPLATE"})
+    public String material;
+
+    @Param({"epic", "celestial"})
+    public String rarityId;
+
+    private Material type;
+    private Rarity rarity;
+    private Map<Attribute, Double> baseAttributes;
+    private boolean weapon;
+    private boolean armor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.init();
+        type = Material.valueOf(material);
+        rarity = Fixtures.rarity(rarityId);
+        baseAttributes = ItemUtil.getBaseAttributes(type);
+        weapon = MaterialTypeChecker.isWeapon(type);
+        armor = MaterialTypeChecker.isArmor(type);
+    }
+
+    @Benchmark
+    public List<Component> createLore() {
+        return ItemUtil.createLore(rarity, baseAttributes, ItemTemplates.ability(type, rarity), weapon, armor);
+    }
+
+    @Benchmark
+    public Component createDisplayName() {
+        return ItemUtil.createDisplayName(type, rarity);
+    }
+
+    /**
+     * Текущий путь: готовый шаблон
+     */
+    @Benchmark
+    public ItemTemplates.Template templateLookup() {
+        return ItemTemplates.get(type, rarity);
+    }
+}
@@ -2,20 +2,47 @@
 
 import org.bedepay.rareItems.commands.RareItemsCommand;
 import org.bedepay.rareItems.config.ConfigManager;
+import org.bedepay.rareItems.config.ConfigSnapshot;
+import org.bedepay.rareItems.config.RarityDiff;
 import org.bedepay.rareItems.listeners.CraftListener;
 import org.bedepay.rareItems.listeners.WeaponEffectListener;
 import org.bedepay.rareItems.listeners.SpecialAbilityListener;
 import org.bedepay.rareItems.listeners.DungeonLootListener;
 import org.bedepay.rareItems.listeners.RarityUpgradeListener;
+import org.bedepay.rareItems.manager.ArmorEffectScheduler;
+import org.bedepay.rareItems.manager.CooldownRegistry;
+import org.bedepay.rareItems.manager.EffectRenderer;
+import org.bedepay.rareItems.manager.EquipmentManager;
+import org.bedepay.rareItems.manager.ItemRefresher;
 import org.bedepay.rareItems.manager.RarityManager;
+import org.bedepay.rareItems.manager.TemporaryBlockManager;
+import org.bedepay.rareItems.metrics.PluginMetrics;
+import org.bedepay.rareItems.metrics.TraceRecorder;
+import org.bedepay.rareItems.util.AreaQuery;
+import org.bedepay.rareItems.util.ItemTemplates;
 import org.bedepay.rareItems.util.MaterialTypeChecker;
-import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.util.concurrent.CompletableFuture;
+
 public final class RareItems extends JavaPlugin {
     private ConfigManager configManager;
     private RarityManager rarityManager;
+    private EquipmentManager equipmentManager;
+    private ItemRefresher itemRefresher;
+    private TemporaryBlockManager temporaryBlockManager;
+    private CooldownRegistry cooldownRegistry;
+    private ArmorEffectScheduler armorEffectScheduler;
+    private EffectRenderer effectRenderer;
+    private PluginMetrics metrics;
+    private TraceRecorder traceRecorder;
     private WeaponEffectListener weaponEffectListener;
+    private RarityUpgradeListener rarityUpgradeListener;
+    
+    // Конфиг, прочитанный в рабочем потоке при перезагрузке (null - конфиг JavaPlugin)
+    private volatile FileConfiguration activeConfig;
+    private CompletableFuture<RarityDiff> pendingReload;
 
     @Override
     public void onEnable() {
@@ -26,9 +53,47 @@ public void onEnable() {
         configManager = new ConfigManager(this);
         configManager.loadConfig();
         
+        // Метрики и трассировка нужны всем обработчикам, поэтому создаются до них
+        metrics = new PluginMetrics(this);
+        metrics.reload();
+        traceRecorder = new TraceRecorder(this);
+        
         // Initialize rarity manager
         rarityManager = new RarityManager(this, configManager);
         
+        // Таблица типов материалов нужна шаблонам и всем слушателям
+        MaterialTypeChecker.rebuild(configManager.isIncludeHoes());
+        
+        // Собираем шаблоны оформления предметов под текущий конфиг
+        ItemTemplates.rebuild(this);
+        
+        // Перерисовка устаревших предметов (нужна снимкам экипировки)
+        itemRefresher = new ItemRefresher(this);
+        getServer().getPluginManager().registerEvents(itemRefresher, this);
+        
+        // Initialize equipment snapshots (до слушателей, которые их читают)
+        equipmentManager = new EquipmentManager(this);
+        getServer().getPluginManager().registerEvents(equipmentManager, this);
+        equipmentManager.refreshAll();
+        
+        // Кулдауны способностей (истекшие записи удаляются колесом таймеров)
+        cooldownRegistry = new CooldownRegistry(this);
+        getServer().getPluginManager().registerEvents(cooldownRegistry, this);
+        cooldownRegistry.start();
+        
+        // Временные блоки способностей (лед, обсидиан)
+        temporaryBlockManager = new TemporaryBlockManager(this);
+        getServer().getPluginManager().registerEvents(temporaryBlockManager, this);
+        temporaryBlockManager.start();
+        
+        // Постоянные эффекты брони (игроки распределены по тикам)
+        armorEffectScheduler = new ArmorEffectScheduler(this);
+        getServer().getPluginManager().registerEvents(armorEffectScheduler, this);
+        armorEffectScheduler.start();
+        
+        // Частицы и звуки эффектов (только игрокам поблизости, с бюджетом на тик)
+        effectRenderer = new EffectRenderer(this);
+        
         // Register listeners
         getServer().getPluginManager().registerEvents(new CraftListener(this), this);
         
@@ -43,26 +108,40 @@ public void onEnable() {
         getServer().getPluginManager().registerEvents(new DungeonLootListener(this, configManager), this);
         
         // Register rarity upgrade listener
-        getServer().getPluginManager().registerEvents(new RarityUpgradeListener(this, configManager), this);
+        rarityUpgradeListener = new RarityUpgradeListener(this, configManager);
+        getServer().getPluginManager().registerEvents(rarityUpgradeListener, this);
         
         // Register commands
         RareItemsCommand commandHandler = new RareItemsCommand(this);
         getCommand("rareitems").setExecutor(commandHandler);
         getCommand("rareitems").setTabCompleter(commandHandler);
         
-        // Start cleanup task for effect cooldowns
-        Bukkit.getScheduler().runTaskTimer(this, () -> {
-            if (weaponEffectListener != null) {
-                weaponEffectListener.cleanupCooldowns();
-            }
-        }, 6000L, 6000L); // Every 5 minutes
-        
         getLogger().info("RareItems v2.0 - Современный RPG плагин загружен!");
         getLogger().info("Автор: BedePay | Поддержка Adventure API и MiniMessage");
     }
 
     @Override
     public void onDisable() {
+        // Возвращаем воду и лаву, чтобы блоки не остались навсегда
+        if (temporaryBlockManager != null) {
+            temporaryBlockManager.restoreAll();
+        }
+        
+        if (cooldownRegistry != null) {
+            cooldownRegistry.stop();
+        }
+        
+        if (armorEffectScheduler != null) {
+            armorEffectScheduler.stop();
+        }
+        
+        if (metrics != null) {
+            metrics.stop();
+        }
+        
+        // Кэш держит ссылки на сущности - не даем ему пережить выгрузку плагина
+        AreaQuery.clearCache();
+        
         getLogger().info("RareItems v2.0 выгружен. До свидания!");
     }
     
@@ -74,21 +153,118 @@ public RarityManager getRarityManager() {
         return rarityManager;
     }
     
+    public EquipmentManager getEquipmentManager() {
+        return equipmentManager;
+    }
+    
+    public ItemRefresher getItemRefresher() {
+        return itemRefresher;
+    }
+    
+    public CooldownRegistry getCooldownRegistry() {
+        return cooldownRegistry;
+    }
+    
+    public TemporaryBlockManager getTemporaryBlockManager() {
+        return temporaryBlockManager;
+    }
+    
+    public RarityUpgradeListener getRarityUpgradeListener() {
+        return rarityUpgradeListener;
+    }
+    
+    public EffectRenderer getEffectRenderer() {
+        return effectRenderer;
+    }
+    
+    public PluginMetrics getMetrics() {
+        return metrics;
+    }
+    
+    public TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+    
+    @Override
+    public FileConfiguration getConfig() {
+        FileConfiguration config = activeConfig;
+        return config != null ? config : super.getConfig();
+    }
+    
+    @Override
+    public void reloadConfig() {
+        activeConfig = null;
+        super.reloadConfig();
+    }
+    
+    /**
+     * Подменяет текущий конфиг уже прочитанным (вызывается ConfigManager в основном потоке)
+     */
+    public void useConfig(FileConfiguration config) {
+        activeConfig = config;
+    }
+    
     /**
-     * Перезагружает весь плагин (конфиг + кэши)
+     * Перезагружает конфиг: файл читается и проверяется в рабочем потоке, а в основном
+     * только публикуется готовый снимок и обновляется то, что затронули изменения.
+     * Повторный вызов во время перезагрузки возвращает ту же задачу.
+     *
+     * @return что изменилось в редкостях; завершается с ошибкой, если конфиг не прошел проверку
      */
-    public void reloadPlugin() {
-        // Перезагружаем конфигурацию
-        configManager.reloadConfig();
+    public CompletableFuture<RarityDiff> reloadPlugin() {
+        if (pendingReload != null && !pendingReload.isDone()) {
+            return pendingReload;
+        }
+        pendingReload = configManager.parseAsync()
+                .thenApplyAsync(this::applyReload, task -> getServer().getScheduler().runTask(this, task));
+        return pendingReload;
+    }
+    
+    private RarityDiff applyReload(ConfigSnapshot snapshot) {
+        if (!snapshot.isValid()) {
+            throw new IllegalStateException("Найдено ошибок в конфигурации: " + snapshot.errors().size()
+                    + ", перезагрузка отменена. Первая: " + snapshot.errors().get(0));
+        }
+        
+        // Публикуем новый снимок (редкости без изменений остаются теми же объектами)
+        RarityDiff diff = configManager.apply(snapshot);
         
-        // Перезагружаем кэши
         if (rarityManager != null) {
             rarityManager.reloadCache();
         }
         
-        // Очищаем кэш MaterialTypeChecker
-        MaterialTypeChecker.clearCache();
+        // Таблица типов материалов зависит только от settings.includeHoes
+        if (diff.materialsChanged()) {
+            MaterialTypeChecker.rebuild(configManager.isIncludeHoes());
+        }
+        
+        // Рецепты улучшения - от типов материалов и специальных ингредиентов
+        if (rarityUpgradeListener != null) {
+            rarityUpgradeListener.refreshRecipes(diff.materialsChanged());
+        }
+        
+        // Пересобираем шаблоны новых и измененных редкостей, остальные переносятся
+        ItemTemplates.rebuild(this);
+        
+        // Снимки экипировки ссылаются на объекты редкостей - обновляем, только если они сменились
+        if (equipmentManager != null && diff.raritiesChanged()) {
+            equipmentManager.refreshAll();
+        }
+        
+        // Способности перекомпилированы - эффекты брони пересчитываются при следующем обходе
+        if (armorEffectScheduler != null) {
+            armorEffectScheduler.invalidateAll();
+        }
+        
+        if (effectRenderer != null) {
+            effectRenderer.reload();
+        }
+        
+        if (metrics != null) {
+            metrics.reload();
+        }
         
-        getLogger().info("Плагин RareItems полностью перезагружен!");
+        getLogger().info("Плагин RareItems перезагружен: " + diff.summary());
+        return diff;
     }
 }
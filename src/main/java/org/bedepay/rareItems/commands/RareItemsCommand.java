@@ -2,9 +2,18 @@
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.config.ConfigSnapshot;
+import org.bedepay.rareItems.manager.CooldownRegistry;
+import org.bedepay.rareItems.metrics.LatencyHistogram;
+import org.bedepay.rareItems.metrics.PluginMetrics;
+import org.bedepay.rareItems.metrics.TraceRecorder;
 import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityCodec;
+import org.bedepay.rareItems.rarity.RarityResolver;
+import org.bedepay.rareItems.rarity.RarityRoller;
 import org.bedepay.rareItems.util.ItemUtil;
 import org.bedepay.rareItems.util.MaterialTypeChecker;
 import org.bukkit.Bukkit;
@@ -15,12 +24,12 @@
 import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -33,28 +42,37 @@
 public class RareItemsCommand implements CommandExecutor, TabCompleter {
     
     private final RareItems plugin;
-    private final MaterialTypeChecker materialTypeChecker;
     
     // Кэш для Tab Completion
     private final Map<String, List<String>> tabCompletionCache = new HashMap<>();
     private long lastCacheUpdate = 0;
     private static final long CACHE_DURATION = 30000; // 30 секунд
     
+    // Выдача предметов
+    private static final int MAX_GIVE_AMOUNT = 512;
+    // Стаков на одного получателя не больше, чем ячеек в основном инвентаре:
+    // оружие и броня не стакаются, и остаток иначе выпадал бы тысячами сущностей
+    private static final int MAX_GIVE_STACKS = 36;
+    private static final String PERMISSION_TARGET = "perm:";
+    private static final String GIVE_USAGE = "/rareitems give <игрок|*|@селектор|perm:право> <материал> <редкость> [количество]";
+    
     // Подкоманды с их разрешениями
-    private final Map<String, String> subCommandPermissions = Map.of(
-        "reload", "rareitems.admin.reload",
-        "info", "rareitems.admin.info", 
-        "give", "rareitems.admin.give",
-        "inspect", "rareitems.inspect",
-        "upgrade", "rareitems.admin.upgrade",
-        "debug", "rareitems.admin.debug",
-        "validate", "rareitems.admin.validate",
-        "help", ""
+    private final Map<String, String> subCommandPermissions = Map.ofEntries(
+        Map.entry("reload", "rareitems.admin.reload"),
+        Map.entry("info", "rareitems.admin.info"),
+        Map.entry("give", "rareitems.admin.give"),
+        Map.entry("inspect", "rareitems.inspect"),
+        Map.entry("upgrade", "rareitems.admin.upgrade"),
+        Map.entry("debug", "rareitems.admin.debug"),
+        Map.entry("validate", "rareitems.admin.validate"),
+        Map.entry("roll", "rareitems.admin.info"),
+        Map.entry("stats", "rareitems.admin.stats"),
+        Map.entry("trace", "rareitems.admin.trace"),
+        Map.entry("help", "")
     );
     
     public RareItemsCommand(RareItems plugin) {
         this.plugin = plugin;
-        this.materialTypeChecker = new MaterialTypeChecker(plugin);
         updateTabCompletionCache();
     }
     
@@ -80,6 +98,9 @@ public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command
             case "upgrade" -> handleUpgrade(sender, args);
             case "debug" -> handleDebug(sender, args);
             case "validate" -> handleValidate(sender);
+            case "roll" -> handleRoll(sender, args);
+            case "stats" -> handleStats(sender, args);
+            case "trace" -> handleTrace(sender, args);
             case "help" -> { showHelp(sender); yield true; }
             default -> handleUnknownCommand(sender, subCommand);
         };
@@ -110,31 +131,58 @@ private boolean handleReload(CommandSender sender) {
             return true;
         }
         
-        try {
-            // Используем новый метод полной перезагрузки
-            plugin.reloadPlugin();
+        sendSuccessMessage(sender, "🔄 Перезагрузка конфигурации...");
+        
+        // Файл читается и проверяется в рабочем потоке, ответ приходит в основном
+        plugin.reloadPlugin().whenCompleteAsync((diff, error) -> {
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                sendErrorMessage(sender, "❌ Ошибка при перезагрузке: " + cause.getMessage());
+                plugin.getLogger().severe("Ошибка при перезагрузке плагина: " + cause.getMessage());
+                return;
+            }
             
             // Обновляем кэш tab completion после перезагрузки
             updateTabCompletionCache();
             
-            sendSuccessMessage(sender, "✅ Плагин RareItems полностью перезагружен!");
-            sendSuccessMessage(sender, "  📋 Конфигурация обновлена");
-            sendSuccessMessage(sender, "  🗂️ Кэши очищены");
-            sendSuccessMessage(sender, "  🎯 MaterialTypeChecker обновлен");
+            sendSuccessMessage(sender, "✅ Плагин RareItems перезагружен!");
+            if (diff.isEmpty()) {
+                sendSuccessMessage(sender, "  📋 Изменений в редкостях нет, кэши сохранены");
+            } else {
+                sendReloadLine(sender, "  ➕ Добавлены: ", diff.added());
+                sendReloadLine(sender, "  ✏️ Изменены: ", diff.changed());
+                sendReloadLine(sender, "  ➖ Удалены: ", diff.removed());
+                sendSuccessMessage(sender, "  🗂️ Без изменений (кэши сохранены): " + diff.unchanged());
+                if (diff.materialsChanged()) {
+                    sendSuccessMessage(sender, "  🎯 Типы материалов и рецепты улучшения обновлены");
+                }
+            }
             
             if (plugin.getConfigManager().isDebugMode()) {
                 logDebug("Плагин полностью перезагружен игроком: %s", sender.getName());
             }
-            
-        } catch (Exception e) {
-            sendErrorMessage(sender, "❌ Ошибка при перезагрузке: " + e.getMessage());
-            plugin.getLogger().severe("Ошибка при перезагрузке плагина: " + e.getMessage());
-            e.printStackTrace();
-        }
+        }, mainThread());
         
         return true;
     }
     
+    /**
+     * Исполнитель, возвращающий продолжение асинхронной задачи в основной поток
+     */
+    private Executor mainThread() {
+        return task -> Bukkit.getScheduler().runTask(plugin, task);
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    private void sendReloadLine(CommandSender sender, String title, List<String> ids) {
+        if (!ids.isEmpty()) {
+            sendSuccessMessage(sender, title + String.join(", ", ids));
+        }
+    }
+    
     private boolean handleInfo(CommandSender sender, String[] args) {
         if (!hasPermission(sender, "rareitems.admin.info")) {
             return true;
@@ -156,12 +204,12 @@ private boolean handleGive(CommandSender sender, String[] args) {
         }
         
         if (args.length < 4) {
-            sendUsageMessage(sender, "/rareitems give <игрок> <материал> <редкость> [количество]");
+            sendUsageMessage(sender, GIVE_USAGE);
             return true;
         }
         
         // Парсинг аргументов
-        String playerName = args[1];
+        String targetName = args[1];
         String materialName = args[2];
         String rarityId = args[3];
         int amount = args.length >= 5 ? parseAmount(args[4]) : 1;
@@ -171,10 +219,13 @@ private boolean handleGive(CommandSender sender, String[] args) {
             return true;
         }
         
-        // Найти игрока
-        Player target = Bukkit.getPlayer(playerName);
-        if (target == null) {
-            sendErrorMessage(sender, "❌ Игрок '" + playerName + "' не найден или не онлайн");
+        // Найти получателей
+        List<Player> targets = resolveTargets(sender, targetName);
+        if (targets == null) {
+            return true;
+        }
+        if (targets.isEmpty()) {
+            sendErrorMessage(sender, "❌ Игрок '" + targetName + "' не найден или не онлайн");
             return true;
         }
         
@@ -199,42 +250,107 @@ private boolean handleGive(CommandSender sender, String[] args) {
             return true;
         }
         
-        // Создать и выдать предметы
-        int itemsGiven = 0;
-        for (int i = 0; i < amount; i++) {
-            ItemStack item = new ItemStack(material);
-            ItemStack rareItem = ItemUtil.applyRarity(plugin, item, rarity);
-            
-            Map<Integer, ItemStack> notFitted = target.getInventory().addItem(rareItem);
-            if (notFitted.isEmpty()) {
-                itemsGiven++;
-            } else {
-                // Если инвентарь полон, уведомляем об этом
-                break;
-            }
+        // Предмет оформляется один раз, получатели получают копии готовых стаков
+        ItemStack rareItem = ItemUtil.applyRarity(plugin, new ItemStack(material), rarity);
+        int maxAmount = Math.max(1, rareItem.getMaxStackSize()) * MAX_GIVE_STACKS;
+        if (amount > maxAmount) {
+            sendWarningMessage(sender, "⚠️ Количество ограничено до " + maxAmount + " на игрока (размер инвентаря)");
+            amount = maxAmount;
         }
+        ItemStack[] stacks = splitIntoStacks(rareItem, amount);
         
         String materialDisplayName = formatMaterialName(material);
-        String amountText = itemsGiven > 1 ? " x" + itemsGiven : "";
+        String amountText = amount > 1 ? " x" + amount : "";
+        Component received = Component.text("🎁 Вы получили " + rarity.getDisplayName() + " " + materialDisplayName + amountText + "!")
+                .color(NamedTextColor.GREEN);
+        
+        int dropped = 0;
+        for (Player target : targets) {
+            dropped += giveStacks(target, stacks);
+            target.sendMessage(received);
+        }
         
-        if (itemsGiven > 0) {
-            target.sendMessage(Component.text("🎁 Вы получили " + rarity.getDisplayName() + " " + materialDisplayName + amountText + "!")
-                    .color(NamedTextColor.GREEN));
-            
-            sendSuccessMessage(sender, "✅ Выдано " + rarity.getDisplayName() + " " + materialDisplayName + amountText + " игроку " + target.getName());
-            
-            if (itemsGiven < amount) {
-                sendWarningMessage(sender, "⚠️ Выдано только " + itemsGiven + " из " + amount + " предметов (инвентарь полон)");
-            }
-            
-            logDebug("Игрок %s выдал %s %s x%d игроку %s", sender.getName(), rarity.id(), material.name(), itemsGiven, target.getName());
-        } else {
-            sendErrorMessage(sender, "❌ Не удалось выдать предметы - инвентарь игрока полон");
+        String recipients = targets.size() == 1 ? "игроку " + targets.get(0).getName() : targets.size() + " игрокам";
+        sendSuccessMessage(sender, "✅ Выдано " + rarity.getDisplayName() + " " + materialDisplayName + amountText + " " + recipients);
+        if (dropped > 0) {
+            sendWarningMessage(sender, "⚠️ Не поместилось в инвентарь и выброшено рядом с игроками: " + dropped);
         }
         
+        logDebug("Игрок %s выдал %s %s x%d получателям: %d (выброшено %d)",
+                sender.getName(), rarity.id(), material.name(), amount, targets.size(), dropped);
         return true;
     }
     
+    /**
+     * Находит получателей: имя игрока, * (все онлайн), perm:право или селектор (@a, @p, @r...)
+     *
+     * @return список игроков или null, если селектор неверный (ошибка уже отправлена)
+     */
+    private List<Player> resolveTargets(CommandSender sender, String target) {
+        if (target.equals("*")) {
+            return List.copyOf(Bukkit.getOnlinePlayers());
+        }
+        
+        if (target.regionMatches(true, 0, PERMISSION_TARGET, 0, PERMISSION_TARGET.length())) {
+            String permission = target.substring(PERMISSION_TARGET.length());
+            if (permission.isEmpty()) {
+                sendUsageMessage(sender, GIVE_USAGE);
+                return null;
+            }
+            return Bukkit.getOnlinePlayers().stream()
+                    .filter(player -> player.hasPermission(permission))
+                    .collect(Collectors.toList());
+        }
+        
+        if (target.startsWith("@")) {
+            try {
+                return Bukkit.selectEntities(sender, target).stream()
+                        .filter(entity -> entity instanceof Player)
+                        .map(entity -> (Player) entity)
+                        .collect(Collectors.toList());
+            } catch (IllegalArgumentException e) {
+                sendErrorMessage(sender, "❌ Неверный селектор: " + target);
+                return null;
+            }
+        }
+        
+        Player player = Bukkit.getPlayer(target);
+        return player != null ? List.of(player) : List.of();
+    }
+    
+    /**
+     * Делит количество на стаки по максимальному размеру стака предмета
+     */
+    private static ItemStack[] splitIntoStacks(ItemStack item, int amount) {
+        int maxStack = Math.max(1, item.getMaxStackSize());
+        ItemStack[] stacks = new ItemStack[(amount + maxStack - 1) / maxStack];
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i] = item.clone();
+            stacks[i].setAmount(Math.min(maxStack, amount - i * maxStack));
+        }
+        return stacks;
+    }
+    
+    /**
+     * Кладет стаки в инвентарь одним вызовом, остаток выбрасывает под ноги
+     *
+     * @return количество выброшенных предметов
+     */
+    private static int giveStacks(Player target, ItemStack[] stacks) {
+        // addItem меняет количество в переданных стаках, поэтому каждому игроку - свои копии
+        ItemStack[] copies = new ItemStack[stacks.length];
+        for (int i = 0; i < stacks.length; i++) {
+            copies[i] = stacks[i].clone();
+        }
+        
+        int dropped = 0;
+        for (ItemStack overflow : target.getInventory().addItem(copies).values()) {
+            target.getWorld().dropItem(target.getLocation(), overflow);
+            dropped += overflow.getAmount();
+        }
+        return dropped;
+    }
+    
     private boolean handleInspect(CommandSender sender) {
         if (!hasPermission(sender, "rareitems.inspect")) {
             return true;
@@ -251,19 +367,18 @@ private boolean handleInspect(CommandSender sender) {
             return true;
         }
         
-        ItemMeta meta = item.getItemMeta();
-        if (meta == null) {
+        if (!item.hasItemMeta()) {
             sendErrorMessage(player, "❌ Этот предмет не имеет метаданных");
             return true;
         }
         
-        if (!meta.getPersistentDataContainer().has(ItemUtil.getKey(plugin, "rarity"), PersistentDataType.STRING)) {
+        String rarityId = RarityResolver.getRarityId(item);
+        if (rarityId == null) {
             sendErrorMessage(player, "❌ Этот предмет не имеет редкости");
             return true;
         }
         
-        String rarityId = meta.getPersistentDataContainer().get(ItemUtil.getKey(plugin, "rarity"), PersistentDataType.STRING);
-        Rarity rarity = plugin.getConfigManager().getRarityById(rarityId);
+        Rarity rarity = RarityResolver.byId(rarityId);
         
         if (rarity == null) {
             sendErrorMessage(player, "❌ Неизвестная редкость: " + rarityId);
@@ -311,6 +426,7 @@ private boolean handleUpgrade(CommandSender sender, String[] args) {
         
         ItemStack upgradedItem = ItemUtil.applyRarity(plugin, item, rarity);
         player.getInventory().setItemInMainHand(upgradedItem);
+        plugin.getEquipmentManager().refresh(player);
         
         sendSuccessMessage(player, "✨ Предмет улучшен до редкости " + rarity.getDisplayName() + "!");
         
@@ -339,10 +455,14 @@ private boolean handleValidate(CommandSender sender) {
             return true;
         }
         
-        try {
-            sendSuccessMessage(sender, "🔍 Проверка конфигурации RareItems...");
-            
-            List<String> issues = validateConfig();
+        sendSuccessMessage(sender, "🔍 Проверка конфигурации RareItems...");
+        
+        // Разбор и проверка файла идут в рабочем потоке, сервер не подвисает
+        plugin.getConfigManager().parseAsync().thenApply(this::validateConfig).whenCompleteAsync((issues, error) -> {
+            if (error != null) {
+                sendErrorMessage(sender, "❌ Ошибка при проверке конфигурации: " + unwrap(error).getMessage());
+                return;
+            }
             
             if (issues.isEmpty()) {
                 sendSuccessMessage(sender, "✅ Конфигурация полностью валидна!");
@@ -357,15 +477,233 @@ private boolean handleValidate(CommandSender sender) {
                 }
                 sendWarningMessage(sender, "Рекомендуется исправить эти проблемы и перезагрузить конфиг.");
             }
-            
-        } catch (Exception e) {
-            sendErrorMessage(sender, "❌ Ошибка при проверке конфигурации: " + e.getMessage());
-            e.printStackTrace();
+        }, mainThread());
+        
+        return true;
+    }
+    
+    private boolean handleRoll(CommandSender sender, String[] args) {
+        if (!hasPermission(sender, "rareitems.admin.info")) {
+            return true;
+        }
+        
+        if (args.length < 2) {
+            sendUsageMessage(sender, "/rareitems roll <craft|dungeon> [количество]");
+            return true;
+        }
+        
+        RarityRoller roller = switch (args[1].toLowerCase()) {
+            case "craft" -> plugin.getConfigManager().getCraftRoller();
+            case "dungeon" -> plugin.getConfigManager().getDungeonRoller();
+            default -> null;
+        };
+        if (roller == null) {
+            sendErrorMessage(sender, "❌ Неизвестный источник: " + args[1] + " (craft или dungeon)");
+            return true;
         }
         
+        int count = 10000;
+        if (args.length >= 3) {
+            try {
+                count = Math.max(1, Math.min(Integer.parseInt(args[2]), 1000000));
+            } catch (NumberFormatException e) {
+                sendErrorMessage(sender, "❌ Неверное количество: " + args[2]);
+                return true;
+            }
+        }
+        
+        // Симулируем броски той же таблицей, что и в игре
+        Map<Rarity, Integer> results = new HashMap<>();
+        int none = 0;
+        for (int i = 0; i < count; i++) {
+            Rarity rarity = roller.roll();
+            if (rarity == null) {
+                none++;
+            } else {
+                results.merge(rarity, 1, Integer::sum);
+            }
+        }
+        
+        sendSuccessMessage(sender, "🎲 Симуляция " + count + " бросков (" + args[1].toLowerCase() + "):");
+        for (Rarity rarity : roller.outcomes()) {
+            if (rarity == null) {
+                continue;
+            }
+            showRollResult(sender, rarity.getDisplayName(), rarity.color(), roller.chanceOf(rarity),
+                    results.getOrDefault(rarity, 0), count);
+        }
+        showRollResult(sender, "Без редкости", NamedTextColor.GRAY, roller.chanceOf(null), none, count);
+        
         return true;
     }
     
+    private void showRollResult(CommandSender sender, String name, TextColor color, double expected, int hits, int count) {
+        sender.sendMessage(Component.text()
+                .append(Component.text("  • ").color(NamedTextColor.DARK_GRAY))
+                .append(Component.text(name).color(color))
+                .append(Component.text(" - ожидается ").color(NamedTextColor.GRAY))
+                .append(Component.text(String.format("%.2f%%", expected)).color(NamedTextColor.YELLOW))
+                .append(Component.text(", выпало ").color(NamedTextColor.GRAY))
+                .append(Component.text(hits + String.format(" (%.2f%%)", hits * 100.0 / count)).color(NamedTextColor.GREEN))
+                .build());
+    }
+    
+    private boolean handleStats(CommandSender sender, String[] args) {
+        if (!hasPermission(sender, "rareitems.admin.stats")) {
+            return true;
+        }
+        
+        PluginMetrics metrics = plugin.getMetrics();
+        String action = args.length >= 2 ? args[1].toLowerCase() : "";
+        
+        if (action.equals("reset")) {
+            metrics.reset();
+            sendSuccessMessage(sender, "🧹 Метрики сброшены");
+            return true;
+        }
+        
+        if (action.equals("export")) {
+            // Файл пишется в рабочем потоке, ответ приходит в основном
+            metrics.exportAsync().whenCompleteAsync((path, error) -> {
+                if (error != null) {
+                    sendErrorMessage(sender, "❌ Не удалось выгрузить метрики: " + unwrap(error).getMessage());
+                } else {
+                    sendSuccessMessage(sender, "💾 Метрики выгружены в " + path);
+                }
+            }, mainThread());
+            return true;
+        }
+        
+        if (!action.isEmpty()) {
+            sendUsageMessage(sender, "/rareitems stats [export|reset]");
+            return true;
+        }
+        
+        sendSuccessMessage(sender, "📊 Метрики RareItems:");
+        if (!metrics.isEnabled()) {
+            sendWarningMessage(sender, "  ⚠️ Сбор метрик выключен (metrics.enabled)");
+        }
+        
+        sender.sendMessage(Component.text("⏱️ Обработчики:").color(NamedTextColor.YELLOW));
+        for (PluginMetrics.Hook hook : PluginMetrics.Hook.values()) {
+            LatencyHistogram histogram = metrics.hook(hook);
+            long count = histogram.count();
+            String timing = count == 0 ? "нет вызовов" : String.format("%d вызовов, среднее %s, p99 ≤ %s, макс %s",
+                    count, formatNanos(histogram.sumNanos() / count), formatNanos(histogram.quantileUpperBound(0.99)),
+                    formatNanos(histogram.maxNanos()));
+            showStatsLine(sender, hook.label(), timing);
+        }
+        
+        for (PluginMetrics.RollSource source : PluginMetrics.RollSource.values()) {
+            Map<String, Long> rolls = metrics.rolls(source);
+            long total = rolls.values().stream().mapToLong(Long::longValue).sum();
+            sender.sendMessage(Component.text("🎲 Броски (" + source.name().toLowerCase() + "): " + total)
+                    .color(NamedTextColor.YELLOW));
+            rolls.forEach((outcome, hits) -> showStatsLine(sender,
+                    outcome.equals(PluginMetrics.NO_RARITY) ? "без редкости" : outcome,
+                    hits + String.format(" (%.2f%%)", hits * 100.0 / total)));
+        }
+        
+        sender.sendMessage(Component.text("⬆️ Улучшения:").color(NamedTextColor.YELLOW));
+        showStatsLine(sender, "успех", String.valueOf(metrics.upgrades(PluginMetrics.UpgradeOutcome.SUCCESS)));
+        showStatsLine(sender, "провал", String.valueOf(metrics.upgrades(PluginMetrics.UpgradeOutcome.FAILURE)));
+        showStatsLine(sender, "критический провал", String.valueOf(metrics.upgrades(PluginMetrics.UpgradeOutcome.CRITICAL_FAILURE)));
+        
+        sender.sendMessage(Component.text("⏳ Отказы по кулдауну:").color(NamedTextColor.YELLOW));
+        for (CooldownRegistry.Ability ability : CooldownRegistry.Ability.values()) {
+            showStatsLine(sender, ability.name().toLowerCase(), String.valueOf(metrics.cooldownRejections(ability)));
+        }
+        
+        sender.sendMessage(Component.text("🗃️ Кэши:").color(NamedTextColor.YELLOW));
+        for (PluginMetrics.Cache cache : PluginMetrics.Cache.values()) {
+            long hits = metrics.cacheHits(cache);
+            long total = hits + metrics.cacheMisses(cache);
+            showStatsLine(sender, cache.name().toLowerCase(), total == 0 ? "нет обращений"
+                    : String.format("%.1f%% попаданий (%d из %d)", hits * 100.0 / total, hits, total));
+        }
+        
+        return true;
+    }
+    
+    private boolean handleTrace(CommandSender sender, String[] args) {
+        if (!hasPermission(sender, "rareitems.admin.trace")) {
+            return true;
+        }
+        
+        TraceRecorder tracer = plugin.getTraceRecorder();
+        String action = args.length >= 2 ? args[1].toLowerCase() : "";
+        
+        switch (action) {
+            case "on", "off" -> {
+                Player target;
+                if (args.length >= 3) {
+                    target = Bukkit.getPlayerExact(args[2]);
+                    if (target == null) {
+                        sendErrorMessage(sender, "❌ Игрок не найден: " + args[2]);
+                        return true;
+                    }
+                } else if (sender instanceof Player player) {
+                    target = player;
+                } else {
+                    sendUsageMessage(sender, "/rareitems trace " + action + " <игрок>");
+                    return true;
+                }
+                
+                if (action.equals("on")) {
+                    tracer.enable(target.getUniqueId());
+                    sendSuccessMessage(sender, "🔍 Трассировка включена для " + target.getName());
+                } else {
+                    tracer.disable(target.getUniqueId());
+                    sendSuccessMessage(sender, "🔍 Трассировка выключена для " + target.getName());
+                }
+            }
+            case "dump" -> {
+                // Буфер копируется сразу, файл пишется в рабочем потоке
+                int events = tracer.size();
+                tracer.dumpAsync().whenCompleteAsync((path, error) -> {
+                    if (error != null) {
+                        sendErrorMessage(sender, "❌ Не удалось выгрузить трассировку: " + unwrap(error).getMessage());
+                    } else {
+                        sendSuccessMessage(sender, "💾 Событий: " + events + ", файл: " + path);
+                    }
+                }, mainThread());
+            }
+            case "clear" -> {
+                tracer.clear();
+                sendSuccessMessage(sender, "🧹 Буфер трассировки очищен");
+            }
+            case "" -> {
+                sendSuccessMessage(sender, "🔍 Трассировка: событий в буфере " + tracer.size());
+                if (tracer.tracedPlayers().isEmpty()) {
+                    sendWarningMessage(sender, "  Никто не трассируется");
+                }
+                for (UUID playerId : tracer.tracedPlayers()) {
+                    Player player = Bukkit.getPlayer(playerId);
+                    showStatsLine(sender, player != null ? player.getName() : playerId.toString(),
+                            player != null ? "онлайн" : "не в сети");
+                }
+            }
+            default -> sendUsageMessage(sender, "/rareitems trace <on|off|dump|clear> [игрок]");
+        }
+        return true;
+    }
+    
+    private void showStatsLine(CommandSender sender, String name, String value) {
+        sender.sendMessage(Component.text()
+                .append(Component.text("  • ").color(NamedTextColor.DARK_GRAY))
+                .append(Component.text(name).color(NamedTextColor.WHITE))
+                .append(Component.text(" - ").color(NamedTextColor.DARK_GRAY))
+                .append(Component.text(value).color(NamedTextColor.GRAY))
+                .build());
+    }
+    
+    private String formatNanos(long nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format("%.2f мс", nanos / 1_000_000.0);
+        }
+        return String.format("%.1f мкс", nanos / 1_000.0);
+    }
+    
     private boolean handleUnknownCommand(CommandSender sender, String subCommand) {
         sendErrorMessage(sender, "❌ Неизвестная подкоманда: " + subCommand);
         sender.sendMessage(Component.text("💡 Используйте /rareitems help для списка команд").color(NamedTextColor.GRAY));
@@ -390,14 +728,23 @@ private List<String> getSecondArgumentCompletions(CommandSender sender, String[]
         String partial = args[1].toLowerCase();
         
         return switch (subCommand) {
-            case "give" -> getOnlinePlayerNames(partial);
+            case "give" -> Stream.concat(
+                    Stream.of("*", "@a", "@p", "@r", PERMISSION_TARGET).filter(target -> target.startsWith(partial)),
+                    getOnlinePlayerNames(partial).stream()).collect(Collectors.toList());
             case "upgrade", "info" -> getRarityIds(partial);
             case "debug" -> getDebugOptions(partial);
+            case "roll" -> Stream.of("craft", "dungeon").filter(source -> source.startsWith(partial)).collect(Collectors.toList());
+            case "stats" -> Stream.of("export", "reset").filter(action -> action.startsWith(partial)).collect(Collectors.toList());
+            case "trace" -> Stream.of("on", "off", "dump", "clear").filter(action -> action.startsWith(partial)).collect(Collectors.toList());
             default -> List.of();
         };
     }
     
     private List<String> getThirdArgumentCompletions(CommandSender sender, String[] args) {
+        if ("trace".equals(args[0].toLowerCase()) && List.of("on", "off").contains(args[1].toLowerCase())) {
+            return getOnlinePlayerNames(args[2].toLowerCase());
+        }
+        
         if (!"give".equals(args[0].toLowerCase())) {
             return List.of();
         }
@@ -420,8 +767,8 @@ private List<String> getFifthArgumentCompletions(CommandSender sender, String[]
             return List.of();
         }
         
-        // Предлагаем числа от 1 до 64
-        return Stream.of("1", "8", "16", "32", "64")
+        // Предлагаем числа до MAX_GIVE_STACKS (оружие и броня не стакаются)
+        return Stream.of("1", "4", "8", "16", "32")
                 .filter(num -> num.startsWith(args[4]))
                 .collect(Collectors.toList());
     }
@@ -509,13 +856,19 @@ private void showHelp(CommandSender sender) {
         showCommandIfHasPermission(sender, "rareitems.admin.info", 
             "/rareitems info [редкость]", "Показать информацию о редкостях");
         showCommandIfHasPermission(sender, "rareitems.admin.give", 
-            "/rareitems give <игрок> <материал> <редкость> [количество]", "Выдать редкий предмет");
+            "/rareitems give <игрок|*|@a|perm:право> <материал> <редкость> [количество]", "Выдать редкий предмет");
         showCommandIfHasPermission(sender, "rareitems.inspect", 
             "/rareitems inspect", "Проверить предмет в руке");
         showCommandIfHasPermission(sender, "rareitems.admin.upgrade", 
             "/rareitems upgrade <редкость>", "Улучшить предмет до редкости");
         showCommandIfHasPermission(sender, "rareitems.admin.debug", 
             "/rareitems debug [опция]", "Управление режимом отладки");
+        showCommandIfHasPermission(sender, "rareitems.admin.info", 
+            "/rareitems roll <craft|dungeon> [количество]", "Симулировать броски редкости");
+        showCommandIfHasPermission(sender, "rareitems.admin.stats", 
+            "/rareitems stats [export|reset]", "Метрики обработчиков, бросков и кэшей");
+        showCommandIfHasPermission(sender, "rareitems.admin.trace", 
+            "/rareitems trace <on|off|dump|clear> [игрок]", "Трассировка срабатываний для игрока");
         showCommandIfHasPermission(sender, "rareitems.admin.validate", 
             "/rareitems validate", "Проверить валидность конфигурации");
         
@@ -572,6 +925,14 @@ private void showItemInfo(Player player, ItemStack item, Rarity rarity) {
                 .append(Component.text(rarity.getDisplayName()).color(rarity.color()))
                 .build());
         
+        RarityCodec.ItemData data = RarityResolver.getData(item);
+        if (data != null && data.upgrades() > 0) {
+            player.sendMessage(Component.text()
+                    .append(Component.text("  ⬆ Улучшений: ").color(NamedTextColor.GRAY))
+                    .append(Component.text(data.upgrades()).color(NamedTextColor.WHITE))
+                    .build());
+        }
+        
         // Показать атрибуты
         showAttributeIfPresent(player, "⚔️", "Урон", rarity.damageBonus(), NamedTextColor.RED);
         showAttributeIfPresent(player, "🛡️", "Броня", rarity.armorBonus(), NamedTextColor.BLUE);
@@ -771,7 +1132,7 @@ private void logDebug(String format, Object... args) {
     
     private int parseAmount(String amountStr) {
         try {
-            return Math.max(1, Math.min(64, Integer.parseInt(amountStr)));
+            return Math.max(1, Math.min(MAX_GIVE_AMOUNT, Integer.parseInt(amountStr)));
         } catch (NumberFormatException e) {
             return -1; // Индикатор ошибки
         }
@@ -827,18 +1188,23 @@ private String formatChance(double chance) {
     }
     
     private boolean isWeaponOrArmor(Material material) {
-        return materialTypeChecker.isWeaponOrArmor(material);
+        return MaterialTypeChecker.isWeaponOrArmor(material);
     }
     
     /**
      * Проверяет валидность конфигурации
      * @return список обнаруженных проблем
      */
-    private List<String> validateConfig() {
-        List<String> issues = new ArrayList<>();
+    /**
+     * Проверяет разобранный с диска конфиг (вызывается в рабочем потоке)
+     */
+    private List<String> validateConfig(ConfigSnapshot snapshot) {
+        // Ошибки и предупреждения ConfigValidator
+        List<String> issues = new ArrayList<>(snapshot.errors());
+        issues.addAll(snapshot.warnings());
         
         // Проверяем редкости
-        List<Rarity> rarities = plugin.getConfigManager().getAllRarities();
+        List<Rarity> rarities = snapshot.rarities();
         if (rarities.isEmpty()) {
             issues.add("Нет определенных редкостей в конфигурации");
             return issues;
@@ -847,7 +1213,7 @@ private List<String> validateConfig() {
         // Проверяем шансы крафта
         double totalChance = 0;
         for (Rarity rarity : rarities) {
-            double chance = plugin.getConfigManager().getCraftChance(rarity.id());
+            double chance = snapshot.craftChances().getOrDefault(rarity.id(), 0.0);
             
             if (chance < 0) {
                 issues.add("Отрицательный шанс для редкости '" + rarity.id() + "': " + chance);
@@ -888,17 +1254,17 @@ private List<String> validateConfig() {
         }
         
         // Проверяем звуки (базовая проверка)
+        String craftSound = snapshot.config().getString("settings.craftSound", "ENTITY_PLAYER_LEVELUP");
         try {
-            String craftSound = plugin.getConfigManager().getCraftSound();
             if (craftSound != null && !craftSound.equals("NONE") && !craftSound.isEmpty()) {
                 org.bukkit.Sound.valueOf(craftSound);
             }
         } catch (IllegalArgumentException e) {
-            issues.add("Неверный звук создания: " + plugin.getConfigManager().getCraftSound());
+            issues.add("Неверный звук создания: " + craftSound);
         }
         
         // Проверяем существование настроек включения мотыг
-        boolean includeHoes = plugin.getConfig().getBoolean("settings.includeHoes", false);
+        boolean includeHoes = snapshot.config().getBoolean("settings.includeHoes", false);
         if (includeHoes) {
             issues.add("Информация: Включена поддержка мотыг как оружия (может быть неожиданно для игроков)");
         }
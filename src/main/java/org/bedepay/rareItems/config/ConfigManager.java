@@ -3,34 +3,86 @@
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextColor;
 import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.rarity.AbilityTable;
 import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityRegistry;
+import org.bedepay.rareItems.rarity.RarityRoller;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.potion.PotionEffectType;
 
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class ConfigManager {
     private final RareItems plugin;
-    private final List<Rarity> rarities = new ArrayList<>();
-    private final Map<String, Double> craftChances = new HashMap<>();
+    // Скомпилированные таблицы бросков (перестраиваются при загрузке конфига)
+    private volatile RarityRoller craftRoller = RarityRoller.EMPTY;
+    private volatile RarityRoller dungeonRoller = RarityRoller.EMPTY;
+    
+    // Скомпилированные способности [редкость][семейство предмета]
+    private volatile AbilityTable abilityTable = AbilityTable.EMPTY;
+    
+    // Типизированные настройки (публикуются вместе с редкостями)
+    private volatile Settings settings;
 
     public ConfigManager(RareItems plugin) {
         this.plugin = plugin;
     }
 
+    /**
+     * Загружает конфиг при включении плагина (синхронно)
+     */
     public void loadConfig() {
         plugin.saveDefaultConfig();
-        FileConfiguration config = plugin.getConfig();
-        
+        apply(parse(plugin.getConfig()));
+    }
+    
+    /**
+     * Читает config.yml с диска, собирает и проверяет модель в рабочем потоке.
+     * Результат нужно применить в основном потоке через {@link #apply(ConfigSnapshot)}.
+     */
+    public CompletableFuture<ConfigSnapshot> parseAsync() {
+        return CompletableFuture.supplyAsync(() -> parse(readFromDisk()),
+                task -> plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task));
+    }
+    
+    /**
+     * Читает файл так же, как JavaPlugin.reloadConfig(), но без подмены текущего конфига
+     */
+    private FileConfiguration readFromDisk() {
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(new File(plugin.getDataFolder(), "config.yml"));
+        InputStream defaults = plugin.getResource("config.yml");
+        if (defaults != null) {
+            config.setDefaults(YamlConfiguration.loadConfiguration(new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+        }
+        return config;
+    }
+    
+    /**
+     * Разбирает конфиг в неизменяемый снимок. Не трогает состояние плагина,
+     * поэтому безопасно вызывается из любого потока.
+     */
+    public ConfigSnapshot parse(FileConfiguration config) {
         // Load rarities
         ConfigurationSection raritiesSection = config.getConfigurationSection("rarities");
+        List<Rarity> previous = RarityRegistry.current().rarities();
+        List<Rarity> rarities = previous;
         if (raritiesSection != null) {
-            rarities.clear();
+            Map<String, Rarity> previousById = new HashMap<>();
+            for (Rarity rarity : previous) {
+                previousById.put(rarity.id(), rarity);
+            }
+            List<Rarity> loaded = new ArrayList<>();
             for (String key : raritiesSection.getKeys(false)) {
                 ConfigurationSection raritySection = raritiesSection.getConfigurationSection(key);
                 if (raritySection != null) {
@@ -76,39 +128,87 @@ public void loadConfig() {
                     ConfigurationSection abilitiesSection = raritySection.getConfigurationSection("specialAbilities");
                     if (abilitiesSection != null) {
                         for (String abilityKey : abilitiesSection.getKeys(false)) {
-                            Object value = abilitiesSection.get(abilityKey);
-                            specialAbilities.put(abilityKey, value);
+                            specialAbilities.put(abilityKey, plainValue(abilitiesSection.get(abilityKey)));
                         }
                     }
                     
                     Rarity rarity = new Rarity(key, name, color, damageBonus, armorBonus, speedBonus, 
                             toughnessBonus, attackSpeedBonus, healthBonus, luckBonus, enchantments, 
                             onHitEffects, effectCooldown, effectChance, particle, sound, specialAbilities);
-                    rarities.add(rarity);
+                    
+                    // Неизмененная редкость остается тем же объектом - кэши по ссылке не сбрасываются
+                    Rarity old = previousById.get(key);
+                    loaded.add(rarity.equals(old) ? old : rarity);
                 }
             }
+            rarities = loaded;
         }
         
-        // Load craft chances and sort them from lowest to highest
-        ConfigurationSection chancesSection = config.getConfigurationSection("craftChances");
-        if (chancesSection != null) {
-            craftChances.clear();
-            
-            // Collect chances in a list and sort
-            List<Map.Entry<String, Double>> sortedChances = new ArrayList<>();
-            for (String key : chancesSection.getKeys(false)) {
-                double chance = chancesSection.getDouble(key, 0.0);
-                sortedChances.add(Map.entry(key, chance));
+        // Шансы крафта
+        Map<String, Double> craftChances = loadChances(config.getConfigurationSection("craftChances"));
+        
+        // Компилируем таблицы бросков для крафта и данжей
+        RarityRoller craft = RarityRoller.compile(craftChances, rarities);
+        RarityRoller dungeon = RarityRoller.compile(loadChances(config.getConfigurationSection("dungeonLoot.dungeonChances")), rarities);
+        
+        // Компилируем способности по редкостям и типам предметов
+        AbilityTable abilities = AbilityTable.compile(config.getConfigurationSection("specialAbilities"), rarities, plugin.getLogger());
+        
+        // Проверяем конфиг там же, где разбирали
+        ConfigValidator validator = new ConfigValidator(plugin);
+        validator.validate(config);
+        
+        // Настройки для обработчиков событий - без чтения путей конфига на каждом событии
+        Settings settings = Settings.load(config, plugin.getLogger());
+        
+        return new ConfigSnapshot(config, settings, rarities, craftChances, craft, dungeon, abilities,
+                validator.getErrors(), validator.getWarnings());
+    }
+    
+    /**
+     * Публикует разобранный конфиг (только основной поток)
+     *
+     * @return что изменилось в редкостях по сравнению с прошлой загрузкой
+     */
+    public RarityDiff apply(ConfigSnapshot snapshot) {
+        List<Rarity> previous = RarityRegistry.current().rarities();
+        Settings previousSettings = settings;
+        
+        plugin.useConfig(snapshot.config());
+        settings = snapshot.settings();
+        
+        // Публикуем неизменяемый снимок редкостей одной ссылкой
+        List<Rarity> current = RarityRegistry.publish(snapshot.rarities(), snapshot.craftChances()).rarities();
+        craftRoller = snapshot.craftRoller();
+        dungeonRoller = snapshot.dungeonRoller();
+        abilityTable = snapshot.abilityTable();
+        
+        boolean materialsChanged = previousSettings != null && previousSettings.includeHoes() != settings.includeHoes();
+        return RarityDiff.between(previous, current, materialsChanged);
+    }
+    
+    /**
+     * Вложенные секции превращаются в обычные карты, чтобы редкости сравнивались по содержимому
+     */
+    private static Object plainValue(Object value) {
+        if (value instanceof ConfigurationSection section) {
+            Map<String, Object> values = new HashMap<>();
+            for (String key : section.getKeys(false)) {
+                values.put(key, plainValue(section.get(key)));
             }
-            
-            // Sort by chance value (ascending order - rarest first)
-            sortedChances.sort(Map.Entry.comparingByValue());
-            
-            // Add to map in sorted order
-            for (Map.Entry<String, Double> entry : sortedChances) {
-                craftChances.put(entry.getKey(), entry.getValue());
+            return Map.copyOf(values);
+        }
+        return value;
+    }
+    
+    private Map<String, Double> loadChances(ConfigurationSection section) {
+        Map<String, Double> chances = new HashMap<>();
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                chances.put(key, section.getDouble(key, 0.0));
             }
         }
+        return chances;
     }
     
     private TextColor parseColor(String colorString) {
@@ -147,49 +247,72 @@ private TextColor parseColor(String colorString) {
         };
     }
     
-    public void reloadConfig() {
-        plugin.reloadConfig();
-        loadConfig();
-    }
-    
     public List<Rarity> getRarities() {
-        return rarities;
+        return RarityRegistry.current().rarities();
     }
     
     public List<Rarity> getSortedRarities() {
-        List<Rarity> sorted = new ArrayList<>(rarities);
-        sorted.sort((r1, r2) -> Double.compare(getCraftChance(r1.id()), getCraftChance(r2.id())));
-        return sorted;
+        return RarityRegistry.current().sortedByChance();
     }
     
     public Rarity getRarityById(String id) {
-        return rarities.stream()
-                .filter(rarity -> rarity.id().equals(id))
-                .findFirst()
-                .orElse(null);
+        return RarityRegistry.current().byId(id);
     }
     
     public double getCraftChance(String rarityId) {
-        return craftChances.getOrDefault(rarityId, 0.0);
+        return RarityRegistry.current().craftChance(rarityId);
+    }
+    
+    public RarityRoller getCraftRoller() {
+        return craftRoller;
+    }
+    
+    public RarityRoller getDungeonRoller() {
+        return dungeonRoller;
+    }
+    
+    public AbilityTable getAbilityTable() {
+        return abilityTable;
+    }
+    
+    public Settings getSettings() {
+        return settings;
+    }
+    
+    public boolean isDungeonLootEnabled() {
+        return settings.dungeonLootEnabled();
     }
     
     public String getCraftMessage() {
-        return plugin.getConfig().getString("settings.craftMessage", "&aВы создали %rarity% предмет!");
+        return settings.craftMessage();
     }
     
     public String getCraftSound() {
-        return plugin.getConfig().getString("settings.craftSound", "ENTITY_PLAYER_LEVELUP");
+        return settings.craftSound();
     }
     
     public boolean isEnabled() {
-        return plugin.getConfig().getBoolean("settings.enabled", true);
+        return settings.enabled();
     }
     
     public boolean isDebugMode() {
-        return plugin.getConfig().getBoolean("settings.debug", false);
+        return settings.debug();
+    }
+    
+    public boolean isIncludeHoes() {
+        return settings.includeHoes();
+    }
+    
+    public double getEffectViewDistance() {
+        return settings.effectViewDistance();
+    }
+    
+    public int getEffectTickBudget() {
+        return settings.effectTickBudget();
     }
     
     public void setDebugMode(boolean debugMode) {
+        settings = settings.withDebug(debugMode);
         plugin.getConfig().set("settings.debug", debugMode);
         plugin.saveConfig();
     }
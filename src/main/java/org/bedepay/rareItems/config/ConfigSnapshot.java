@@ -0,0 +1,41 @@
+package org.bedepay.rareItems.config;
+
+import org.bedepay.rareItems.rarity.AbilityTable;
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityRoller;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Полностью разобранный и проверенный конфиг, готовый к публикации.
+ * <p>
+ * Собирается в рабочем потоке ({@link ConfigManager#parseAsync()}), а в основном потоке
+ * остается только подменить ссылки ({@link ConfigManager#apply(ConfigSnapshot)}).
+ *
+ * @param config       прочитанный файл конфига
+ * @param settings     типизированные настройки
+ * @param rarities     редкости в порядке конфига
+ * @param craftChances шансы крафта по id
+ * @param craftRoller  таблица бросков крафта
+ * @param dungeonRoller таблица бросков данжей
+ * @param abilityTable скомпилированные способности
+ * @param errors       ошибки валидации (с ними конфиг не применяется при перезагрузке)
+ * @param warnings     предупреждения валидации
+ */
+public record ConfigSnapshot(FileConfiguration config, Settings settings, List<Rarity> rarities, Map<String, Double> craftChances,
+                             RarityRoller craftRoller, RarityRoller dungeonRoller, AbilityTable abilityTable,
+                             List<String> errors, List<String> warnings) {
+
+    public ConfigSnapshot {
+        rarities = List.copyOf(rarities);
+        craftChances = Map.copyOf(craftChances);
+        errors = List.copyOf(errors);
+        warnings = List.copyOf(warnings);
+    }
+
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+}
@@ -39,6 +39,7 @@ public boolean validate(FileConfiguration config) {
         validateCraftChances(config);
         validateCompatibility(config);
         validateSpecialAbilities(config);
+        validateSpecialIngredients(config);
         
         // Выводим результаты
         if (!warnings.isEmpty()) {
@@ -309,6 +310,39 @@ private void validateSpecialAbilities(FileConfiguration config) {
         }
     }
     
+    /**
+     * Валидирует специальные ингредиенты улучшения: вместе с двумя предметами
+     * они должны поместиться в сетку верстака, иначе рецепт не регистрируется
+     */
+    private void validateSpecialIngredients(FileConfiguration config) {
+        ConfigurationSection requirements = config.getConfigurationSection("upgradeSystem.specialIngredients.requirements");
+        if (requirements == null || !config.getBoolean("upgradeSystem.specialIngredients.enabled", true)) {
+            return;
+        }
+        
+        for (String rarityId : requirements.getKeys(false)) {
+            ConfigurationSection requirement = requirements.getConfigurationSection(rarityId);
+            if (requirement == null) {
+                continue;
+            }
+            int materials = requirement.getStringList("materials").size();
+            int slots = 2;
+            if (requirement.isList("count")) {
+                List<Integer> counts = requirement.getIntegerList("count");
+                for (int i = 0; i < materials; i++) {
+                    slots += i < counts.size() ? counts.get(i) : 1;
+                }
+            } else {
+                slots += materials * requirement.getInt("count", 1);
+            }
+            
+            if (slots > Settings.Ingredient.GRID_SLOTS) {
+                warnings.add("Ингредиенты улучшения до '" + rarityId + "' вместе с двумя предметами занимают "
+                        + slots + " слотов из " + Settings.Ingredient.GRID_SLOTS + ", улучшение будет недоступно");
+            }
+        }
+    }
+    
     /**
      * Получает список ошибок
      */
@@ -0,0 +1,92 @@
+package org.bedepay.rareItems.config;
+
+import org.bedepay.rareItems.rarity.Rarity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Разница между редкостями до и после перезагрузки конфига.
+ * <p>
+ * Редкости без изменений переносятся в новый снимок тем же объектом, поэтому кэши,
+ * сверяющие редкость по ссылке (шаблоны предметов, способности, снимки экипировки),
+ * остаются прогретыми, а пересобираются только записи добавленных и измененных редкостей.
+ *
+ * @param added            id новых редкостей
+ * @param removed          id удаленных редкостей
+ * @param changed          id редкостей с измененными параметрами
+ * @param unchanged        количество редкостей без изменений
+ * @param materialsChanged изменилась классификация материалов (settings.includeHoes)
+ */
+public record RarityDiff(List<String> added, List<String> removed, List<String> changed,
+                         int unchanged, boolean materialsChanged) {
+
+    public RarityDiff {
+        added = List.copyOf(added);
+        removed = List.copyOf(removed);
+        changed = List.copyOf(changed);
+    }
+
+    /**
+     * Сравнивает списки редкостей по id и содержимому
+     */
+    public static RarityDiff between(List<Rarity> previous, List<Rarity> current, boolean materialsChanged) {
+        Map<String, Rarity> before = new HashMap<>();
+        for (Rarity rarity : previous) {
+            before.put(rarity.id(), rarity);
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        Set<String> present = new HashSet<>();
+        int unchanged = 0;
+
+        for (Rarity rarity : current) {
+            present.add(rarity.id());
+            Rarity old = before.get(rarity.id());
+            if (old == null) {
+                added.add(rarity.id());
+            } else if (old.equals(rarity)) {
+                unchanged++;
+            } else {
+                changed.add(rarity.id());
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (Rarity rarity : previous) {
+            if (!present.contains(rarity.id())) {
+                removed.add(rarity.id());
+            }
+        }
+
+        return new RarityDiff(added, removed, changed, unchanged, materialsChanged);
+    }
+
+    /**
+     * Добавлены, удалены или изменены редкости
+     */
+    public boolean raritiesChanged() {
+        return !added.isEmpty() || !removed.isEmpty() || !changed.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !raritiesChanged() && !materialsChanged;
+    }
+
+    /**
+     * Краткое описание для лога
+     */
+    public String summary() {
+        if (isEmpty()) {
+            return "изменений в редкостях нет";
+        }
+        return String.format("добавлено %d, изменено %d, удалено %d, без изменений %d%s",
+                added.size(), changed.size(), removed.size(), unchanged,
+                materialsChanged ? ", типы материалов обновлены" : "");
+    }
+}
@@ -0,0 +1,234 @@
+package org.bedepay.rareItems.config;
+
+import org.bedepay.rareItems.util.NameMatcher;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Типизированные настройки плагина, собранные из конфига при загрузке.
+ * <p>
+ * Обработчики событий читают готовые поля вместо путей MemorySection,
+ * которые при каждом обращении режут строку пути и обходят вложенные секции.
+ *
+ * @param enabled            плагин включен
+ * @param debug              отладочные сообщения
+ * @param includeHoes        считать мотыги оружием
+ * @param craftMessage       шаблон сообщения о крафте
+ * @param craftSound         звук крафта по умолчанию
+ * @param dungeonLootEnabled редкости в сундуках данжей
+ * @param effectViewDistance дальность видимости эффектов
+ * @param effectTickBudget   бюджет частиц за тик
+ * @param compatibility      правила пропуска чужих предметов
+ * @param upgrade            система улучшения редкости
+ * @param metrics            сбор и выгрузка метрик
+ * @param itemRefresh        перерисовка устаревших предметов
+ */
+public record Settings(boolean enabled, boolean debug, boolean includeHoes, String craftMessage, String craftSound,
+                       boolean dungeonLootEnabled, double effectViewDistance, int effectTickBudget,
+                       Compatibility compatibility, Upgrade upgrade, MetricsExport metrics, ItemRefresh itemRefresh) {
+
+    /**
+     * Копия с другим режимом отладки (переключается командой без перезагрузки)
+     */
+    public Settings withDebug(boolean debug) {
+        return new Settings(enabled, debug, includeHoes, craftMessage, craftSound, dungeonLootEnabled,
+                effectViewDistance, effectTickBudget, compatibility, upgrade, metrics, itemRefresh);
+    }
+
+    /**
+     * Собирает настройки из конфига (безопасно вызывать из любого потока)
+     */
+    public static Settings load(FileConfiguration config, Logger logger) {
+        return new Settings(
+                config.getBoolean("settings.enabled", true),
+                config.getBoolean("settings.debug", false),
+                config.getBoolean("settings.includeHoes", false),
+                config.getString("settings.craftMessage", "&aВы создали %rarity% предмет!"),
+                config.getString("settings.craftSound", "ENTITY_PLAYER_LEVELUP"),
+                config.getBoolean("dungeonLoot.enabled", true),
+                Math.max(1.0, config.getDouble("effects.viewDistance", 32.0)),
+                Math.max(0, config.getInt("effects.tickBudget", 4000)),
+                Compatibility.load(config, logger),
+                Upgrade.load(config, logger),
+                new MetricsExport(
+                        config.getBoolean("metrics.enabled", true),
+                        config.getString("metrics.exportFile", "metrics.prom"),
+                        Math.max(0, config.getInt("metrics.exportInterval", 60))),
+                new ItemRefresh(
+                        config.getBoolean("itemRefresh.enabled", true),
+                        Math.max(1, config.getInt("itemRefresh.perTick", 32)))
+        );
+    }
+
+    /**
+     * Совместимость с предметами других плагинов
+     *
+     * @param ignoreWithAttributes  пропускать предметы с атрибутами
+     * @param ignoreWithCustomNames пропускать предметы с именем
+     * @param ignoredMaterials      пропускаемые материалы
+     * @param ignoredNames          подстроки имен пропускаемых предметов
+     */
+    public record Compatibility(boolean ignoreWithAttributes, boolean ignoreWithCustomNames,
+                                Set<Material> ignoredMaterials, NameMatcher ignoredNames) {
+
+        static Compatibility load(FileConfiguration config, Logger logger) {
+            Set<Material> materials = EnumSet.noneOf(Material.class);
+            for (String name : config.getStringList("compatibility.ignoredMaterials")) {
+                Material material = Material.matchMaterial(name);
+                if (material != null) {
+                    materials.add(material);
+                } else {
+                    logger.warning("Неизвестный материал в compatibility.ignoredMaterials: " + name);
+                }
+            }
+            return new Compatibility(
+                    config.getBoolean("compatibility.ignoreItemsWithAttributes", true),
+                    config.getBoolean("compatibility.ignoreItemsWithCustomNames", false),
+                    Collections.unmodifiableSet(materials),
+                    NameMatcher.compile(config.getStringList("compatibility.ignoredItemNames"))
+            );
+        }
+    }
+
+    /**
+     * Система улучшения редкости. Карты требований - по id целевой редкости,
+     * шансы успеха - по id текущей.
+     */
+    public record Upgrade(boolean combinationEnabled, int minDurabilityPercent,
+                          Map<String, Integer> enchantmentRequirements,
+                          Map<String, List<String>> materialRequirements,
+                          boolean specialIngredientsEnabled,
+                          Map<String, List<Ingredient>> specialIngredients,
+                          Map<String, Double> successChances,
+                          boolean destroyOneItem, double criticalFailureChance, double downgradeChance) {
+
+        public int requiredEnchantments(String rarityId) {
+            return enchantmentRequirements.getOrDefault(rarityId, 0);
+        }
+
+        public List<String> allowedMaterials(String rarityId) {
+            return materialRequirements.getOrDefault(rarityId, List.of());
+        }
+
+        public List<Ingredient> ingredients(String rarityId) {
+            return specialIngredientsEnabled ? specialIngredients.getOrDefault(rarityId, List.of()) : List.of();
+        }
+
+        public double successChance(String rarityId) {
+            return successChances.getOrDefault(rarityId, 100.0);
+        }
+
+        static Upgrade load(FileConfiguration config, Logger logger) {
+            String base = "upgradeSystem.combination.";
+
+            Map<String, Integer> enchantments = new HashMap<>();
+            ConfigurationSection section = config.getConfigurationSection(base + "requirements.enchantmentRequirements");
+            if (section != null) {
+                for (String id : section.getKeys(false)) {
+                    enchantments.put(id, section.getInt(id, 0));
+                }
+            }
+
+            Map<String, List<String>> materials = new HashMap<>();
+            section = config.getConfigurationSection(base + "requirements.materialRequirements");
+            if (section != null) {
+                for (String id : section.getKeys(false)) {
+                    materials.put(id, List.copyOf(section.getStringList(id)));
+                }
+            }
+
+            Map<String, Double> chances = new HashMap<>();
+            section = config.getConfigurationSection(base + "successChances");
+            if (section != null) {
+                for (String id : section.getKeys(false)) {
+                    chances.put(id, section.getDouble(id, 100.0));
+                }
+            }
+
+            Map<String, List<Ingredient>> ingredients = new HashMap<>();
+            section = config.getConfigurationSection("upgradeSystem.specialIngredients.requirements");
+            if (section != null) {
+                for (String id : section.getKeys(false)) {
+                    ingredients.put(id, Ingredient.load(section.getConfigurationSection(id), logger, id));
+                }
+            }
+
+            return new Upgrade(
+                    config.getBoolean(base + "enabled", true),
+                    config.getInt(base + "requirements.minDurabilityPercent", 80),
+                    Map.copyOf(enchantments),
+                    Map.copyOf(materials),
+                    config.getBoolean("upgradeSystem.specialIngredients.enabled", true),
+                    Map.copyOf(ingredients),
+                    Map.copyOf(chances),
+                    config.getBoolean(base + "failureConsequences.destroyOneItem", true),
+                    config.getDouble(base + "failureConsequences.criticalFailureChance", 10.0),
+                    config.getDouble(base + "failureConsequences.downgradeChance", 30.0)
+            );
+        }
+    }
+
+    /**
+     * Метрики плагина
+     *
+     * @param enabled        собирать метрики
+     * @param exportFile     файл выгрузки в формате Prometheus (относительно папки плагина)
+     * @param exportInterval период выгрузки в секундах (0 - только по команде)
+     */
+    public record MetricsExport(boolean enabled, String exportFile, int exportInterval) {
+    }
+
+    /**
+     * Перерисовка предметов после изменения редкостей
+     *
+     * @param enabled перерисовывать устаревшие предметы при касании
+     * @param perTick сколько предметов можно перерисовать за тик
+     */
+    public record ItemRefresh(boolean enabled, int perTick) {
+    }
+
+    /**
+     * Специальный ингредиент улучшения
+     */
+    public record Ingredient(Material material, int count) {
+
+        /**
+         * Слотов в сетке верстака: два улучшаемых предмета и ингредиенты должны в нее поместиться
+         */
+        public static final int GRID_SLOTS = 9;
+
+        /**
+         * Разбирает materials и count (одно число для всех материалов или список по порядку)
+         */
+        static List<Ingredient> load(ConfigurationSection section, Logger logger, String rarityId) {
+            if (section == null) {
+                return List.of();
+            }
+            List<String> materials = section.getStringList("materials");
+            List<Integer> counts = section.isList("count")
+                    ? section.getIntegerList("count")
+                    : Collections.nCopies(materials.size(), section.getInt("count", 1));
+
+            List<Ingredient> ingredients = new ArrayList<>();
+            for (int i = 0; i < materials.size(); i++) {
+                Material material = Material.matchMaterial(materials.get(i));
+                if (material == null) {
+                    logger.warning("Неизвестный ингредиент улучшения для " + rarityId + ": " + materials.get(i));
+                    continue;
+                }
+                ingredients.add(new Ingredient(material, i < counts.size() ? counts.get(i) : 1));
+            }
+            return List.copyOf(ingredients);
+        }
+    }
+}
@@ -2,15 +2,23 @@
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.config.Settings;
+import org.bedepay.rareItems.manager.EffectRenderer;
+import org.bedepay.rareItems.metrics.PluginMetrics;
+import org.bedepay.rareItems.metrics.TraceRecorder;
 import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityCodec;
+import org.bedepay.rareItems.rarity.RarityRegistry;
+import org.bedepay.rareItems.rarity.RarityResolver;
+import org.bedepay.rareItems.util.EffectShape;
 import org.bedepay.rareItems.util.ItemUtil;
+import org.bedepay.rareItems.util.NameMatcher;
 import org.bedepay.rareItems.util.MaterialTypeChecker;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.entity.Player;
@@ -20,33 +28,59 @@
 import org.bukkit.event.inventory.CraftItemEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataContainer;
-import org.bukkit.persistence.PersistentDataType;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class CraftListener implements Listener {
+    // Формы эффектов крафта рассчитываются один раз
+    private static final EffectShape CELESTIAL_RING = EffectShape.ring(24, 3, 2);
+    private static final EffectShape DIVINE_SPIRAL = EffectShape.spiral(30, 0.4, 0.08);
+    private static final int NAME_CACHE_SIZE = 512;
+
     private final RareItems plugin;
-    private final Random random = new Random();
     private final MiniMessage miniMessage = MiniMessage.miniMessage();
     
-    // Кэш для проверки типов материалов
-    private final MaterialTypeChecker materialTypeChecker;
+    // Волны частиц по количеству точек (только основной поток)
+    private final Map<Integer, EffectShape> craftWaves = new HashMap<>();
+    
+    // Результаты проверки имен для текущего автомата (только основной поток)
+    private final Map<Component, Boolean> ignoredNameCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Component, Boolean> eldest) {
+            return size() > NAME_CACHE_SIZE;
+        }
+    };
+    private NameMatcher ignoredNamesMatcher;
 
     public CraftListener(RareItems plugin) {
         this.plugin = plugin;
-        this.materialTypeChecker = new MaterialTypeChecker(plugin);
     }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onCraft(CraftItemEvent event) {
+        long start = plugin.getMetrics().start();
+        try {
+            processCraft(event);
+        } finally {
+            plugin.getMetrics().stop(PluginMetrics.Hook.CRAFT, start);
+        }
+    }
+    
+    private void processCraft(CraftItemEvent event) {
         if (!plugin.getConfigManager().isEnabled()) {
             return;
         }
         
+        // Рецепты улучшения и починка через них обрабатываются в RarityUpgradeListener:
+        // у них в рецепте заглушка, бросать редкость на нее нельзя
+        RarityUpgradeListener upgrades = plugin.getRarityUpgradeListener();
+        if (upgrades != null && upgrades.isUpgradeRecipe(event.getRecipe())) {
+            return;
+        }
+        
         ItemStack result = event.getRecipe().getResult();
         
         // Проверка на null для безопасности
@@ -56,10 +90,9 @@ public void onCraft(CraftItemEvent event) {
         
         // ВАЖНО: Проверяем, не является ли это результатом улучшения редкости
         // Если да - не применяем случайные шансы, улучшение уже обработано в RarityUpgradeListener
-        ItemStack currentResult = event.getCurrentItem();
-        if (currentResult != null && currentResult.getItemMeta() != null) {
-            if (currentResult.getItemMeta().getPersistentDataContainer()
-                    .getOrDefault(new NamespacedKey(plugin, "rarity_upgrade"), PersistentDataType.BOOLEAN, false)) {
+        RarityCodec.ItemData currentData = RarityResolver.getData(event.getCurrentItem());
+        if (currentData != null) {
+            if (currentData.hasFlag(RarityCodec.FLAG_UPGRADE_PREVIEW)) {
                 
                 if (plugin.getConfigManager().isDebugMode()) {
                     plugin.getLogger().info("[RareItems Debug] Пропускаем обработку крафта - это улучшение редкости");
@@ -74,17 +107,28 @@ public void onCraft(CraftItemEvent event) {
         }
         
         // Проверяем, не имеет ли предмет уже редкость от нашего плагина
-        if (hasOurRarity(result)) {
+        if (RarityResolver.hasRarityTag(result)) {
             return;
         }
         
+        Player crafter = event.getWhoClicked() instanceof Player clicker ? clicker : null;
+        TraceRecorder tracer = plugin.getTraceRecorder();
+        long traceStart = crafter != null ? tracer.start(crafter) : 0L;
+        
         // Проверяем настройки совместимости
         if (shouldIgnoreItem(result)) {
+            tracer.record(traceStart, crafter, TraceRecorder.Stage.CRAFT, null,
+                    TraceRecorder.Outcome.IGNORED, Double.NaN, Double.NaN);
             return;
         }
         
         // Определяем, должен ли предмет иметь редкость (ИСПРАВЛЕНА ЛОГИКА ШАНСОВ)
         Rarity selectedRarity = selectRarity();
+        if (traceStart != 0L) {
+            tracer.record(traceStart, crafter, TraceRecorder.Stage.CRAFT, selectedRarity,
+                    selectedRarity != null ? TraceRecorder.Outcome.TRIGGERED : TraceRecorder.Outcome.NO_RARITY,
+                    Double.NaN, plugin.getConfigManager().getCraftRoller().chanceOf(selectedRarity));
+        }
         if (selectedRarity == null) {
             return;
         }
@@ -109,79 +153,68 @@ public void onCraft(CraftItemEvent event) {
     }
     
     private boolean isWeaponOrArmor(Material material) {
-        return materialTypeChecker.isWeaponOrArmor(material);
+        return MaterialTypeChecker.isWeaponOrArmor(material);
     }
     
-    private boolean hasOurRarity(ItemStack item) {
-        ItemMeta meta = item.getItemMeta();
-        if (meta == null) {
-            return false;
+    private boolean shouldIgnoreItem(ItemStack item) {
+        Settings.Compatibility compatibility = plugin.getConfigManager().getSettings().compatibility();
+        
+        // Проверяем список игнорируемых материалов
+        if (compatibility.ignoredMaterials().contains(item.getType())) {
+            return true;
         }
         
-        // Проверяем наличие нашего ключа в PersistentDataContainer
-        PersistentDataContainer container = meta.getPersistentDataContainer();
-        return container.has(ItemUtil.getKey(plugin, "rarity"), PersistentDataType.STRING);
-    }
-    
-    private boolean shouldIgnoreItem(ItemStack item) {
+        if (!item.hasItemMeta()) {
+            return false;
+        }
         ItemMeta meta = item.getItemMeta();
         
         // Проверяем настройки совместимости
-        boolean ignoreWithAttributes = plugin.getConfig().getBoolean("compatibility.ignoreItemsWithAttributes", true);
-        boolean ignoreWithCustomNames = plugin.getConfig().getBoolean("compatibility.ignoreItemsWithCustomNames", false);
-        
-        if (ignoreWithAttributes && meta != null && meta.hasAttributeModifiers()) {
+        if (compatibility.ignoreWithAttributes() && meta.hasAttributeModifiers()) {
             return true;
         }
         
-        if (ignoreWithCustomNames && meta != null && meta.hasDisplayName()) {
-            return true;
+        if (!meta.hasDisplayName()) {
+            return false;
         }
         
-        // Проверяем список игнорируемых материалов
-        List<String> ignoredMaterials = plugin.getConfig().getStringList("compatibility.ignoredMaterials");
-        if (ignoredMaterials.contains(item.getType().name())) {
+        if (compatibility.ignoreWithCustomNames()) {
             return true;
         }
         
-        // Проверяем список игнорируемых имен
-        if (meta != null && meta.hasDisplayName()) {
-            String displayName = LegacyComponentSerializer.legacyAmpersand().serialize(meta.displayName());
-            List<String> ignoredNames = plugin.getConfig().getStringList("compatibility.ignoredItemNames");
-            
-            for (String ignoredName : ignoredNames) {
-                if (displayName.toLowerCase().contains(ignoredName.toLowerCase())) {
-                    return true;
-                }
-            }
+        // Проверяем список игнорируемых имен (имя сериализуем, только если список не пуст)
+        return !compatibility.ignoredNames().isEmpty() && isIgnoredName(compatibility.ignoredNames(), meta.displayName());
+    }
+    
+    /**
+     * Проверяет имя по автомату игнорируемых имен. Предметы других плагинов крафтятся
+     * с одними и теми же именами, поэтому результат запоминается по компоненту имени.
+     */
+    private boolean isIgnoredName(NameMatcher matcher, Component displayName) {
+        if (matcher != ignoredNamesMatcher) {
+            // Конфиг перезагружен - старые результаты недействительны
+            ignoredNameCache.clear();
+            ignoredNamesMatcher = matcher;
         }
-        
-        return false;
+        Boolean ignored = ignoredNameCache.get(displayName);
+        plugin.getMetrics().cache(PluginMetrics.Cache.IGNORED_NAMES, ignored != null);
+        if (ignored == null) {
+            ignored = matcher.matches(PlainTextComponentSerializer.plainText().serialize(displayName));
+            ignoredNameCache.put(displayName, ignored);
+        }
+        return ignored;
     }
     
     private Rarity selectRarity() {
-        List<Rarity> sortedRarities = plugin.getConfigManager().getSortedRarities();
-        if (sortedRarities.isEmpty()) {
-            return null;
-        }
-        
-        double roll = random.nextDouble() * 100.0;
+        // Таблица скомпилирована при загрузке конфига - бросок за O(1)
+        Rarity rarity = plugin.getConfigManager().getCraftRoller().roll();
+        plugin.getMetrics().roll(PluginMetrics.RollSource.CRAFT, rarity);
         
-        // ИСПРАВЛЕНА ЛОГИКА: идем от самой редкой к менее редкой
-        for (Rarity rarity : sortedRarities) {
-            double chance = plugin.getConfigManager().getCraftChance(rarity.id());
-            
-            if (plugin.getConfigManager().isDebugMode()) {
-                plugin.getLogger().info(String.format("Проверяем редкость %s (шанс: %.2f%%, ролл: %.2f%%)", 
-                        rarity.name(), chance, roll));
-            }
-            
-            if (roll <= chance) {
-                return rarity;
-            }
+        if (plugin.getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("Бросок редкости крафта: " + (rarity != null ? rarity.name() : "без редкости"));
         }
         
-        return null; // Обычный предмет
+        return rarity;
     }
     
     private void notifyPlayer(Player player, Rarity rarity, Material material) {
@@ -205,12 +238,13 @@ private void notifyPlayer(Player player, Rarity rarity, Material material) {
         player.sendMessage(component);
         
         // Отправляем title для очень редких предметов
-        if (isVeryRare(rarity.id())) {
+        RarityRegistry registry = RarityRegistry.current();
+        if (registry.isVeryRare(rarity.id())) {
             sendTitle(player, rarity, capitalizedMaterial);
         }
         
         // Уведомляем других игроков о получении очень редкого предмета
-        if (isExtremelyRare(rarity.id())) {
+        if (registry.isExtremelyRare(rarity.id())) {
             announceToServer(player, rarity, capitalizedMaterial);
         }
     }
@@ -278,7 +312,7 @@ private void playEffects(Player player, Rarity rarity) {
         }
         
         // Особые эффекты для очень редких предметов
-        if (isExtremelyRare(rarity.id())) {
+        if (RarityRegistry.current().isExtremelyRare(rarity.id())) {
             spawnEpicEffects(player, rarity);
         }
         
@@ -300,35 +334,23 @@ private void spawnEpicEffects(Player player, Rarity rarity) {
         player.playSound(loc, Sound.BLOCK_BEACON_ACTIVATE, 1.0f, 1.5f);
         
         // Эпичные частицы в зависимости от редкости
+        EffectRenderer effects = plugin.getEffectRenderer();
         switch (rarity.id()) {
             case "celestial" -> {
                 // Небесные эффекты - кольцо частиц
-                for (int i = 0; i < 360; i += 15) {
-                    double angle = Math.toRadians(i);
-                    double x = Math.cos(angle) * 3;
-                    double z = Math.sin(angle) * 3;
-                    Location particleLoc = loc.clone().add(x, 2, z);
-                    player.getWorld().spawnParticle(Particle.END_ROD, particleLoc, 1, 0, 0, 0, 0);
-                    player.getWorld().spawnParticle(Particle.FIREWORKS_SPARK, particleLoc, 2, 0.1, 0.1, 0.1, 0);
-                }
+                effects.shape(player, loc, CELESTIAL_RING, Particle.END_ROD, 1, 0);
+                effects.shape(player, loc, CELESTIAL_RING, Particle.FIREWORKS_SPARK, 2, 0.1);
                 // Центральный взрыв
-                player.getWorld().spawnParticle(Particle.ENCHANTMENT_TABLE, loc.add(0, 1, 0), 100, 2, 2, 2, 0.1);
+                effects.burst(player, loc.add(0, 1, 0), Particle.ENCHANTMENT_TABLE, 100, 2, 2, 2, 0.1);
             }
             case "divine" -> {
                 // Божественные эффекты - спираль
-                for (int i = 0; i < 30; i++) {
-                    double angle = i * 0.4;
-                    double radius = i * 0.08;
-                    double x = Math.cos(angle) * radius;
-                    double z = Math.sin(angle) * radius;
-                    Location spiralLoc = loc.clone().add(x, i * 0.08, z);
-                    player.getWorld().spawnParticle(Particle.TOTEM, spiralLoc, 2, 0.1, 0.1, 0.1, 0);
-                }
+                effects.shape(player, loc, DIVINE_SPIRAL, Particle.TOTEM, 2, 0.1);
             }
             case "mythic" -> {
                 // Мифические эффекты - портал
-                player.getWorld().spawnParticle(Particle.DRAGON_BREATH, loc.add(0, 1, 0), 40, 1.5, 1.5, 1.5, 0.1);
-                player.getWorld().spawnParticle(Particle.PORTAL, loc, 80, 2, 2, 2, 0.1);
+                effects.burst(player, loc.add(0, 1, 0), Particle.DRAGON_BREATH, 40, 1.5, 1.5, 1.5, 0.1);
+                effects.burst(player, loc, Particle.PORTAL, 80, 2, 2, 2, 0.1);
             }
         }
     }
@@ -403,25 +425,8 @@ private void spawnParticleEffect(Player player, Particle particle, Rarity rarity
         };
         
         // Спиральный эффект
-        for (int i = 0; i < count; i++) {
-            double angle = (i * 2 * Math.PI) / count;
-            double radius = 1.5;
-            double x = radius * Math.cos(angle);
-            double z = radius * Math.sin(angle);
-            double y = Math.sin(i * 0.5) * 0.5;
-            
-            Location particleLocation = location.clone().add(x, y, z);
-            player.getWorld().spawnParticle(particle, particleLocation, 1, 0, 0, 0, 0);
-        }
-    }
-    
-    private boolean isVeryRare(String rarityId) {
-        return rarityId.equals("legendary") || rarityId.equals("mythic") || 
-               rarityId.equals("divine") || rarityId.equals("celestial");
-    }
-    
-    private boolean isExtremelyRare(String rarityId) {
-        return rarityId.equals("divine") || rarityId.equals("celestial");
+        EffectShape shape = craftWaves.computeIfAbsent(count, points -> EffectShape.wave(points, 1.5, 0.5, 0.5));
+        plugin.getEffectRenderer().shape(player, location, shape, particle, 1, 0);
     }
     
     private String capitalizeWords(String str) {
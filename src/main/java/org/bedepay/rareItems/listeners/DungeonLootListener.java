@@ -2,6 +2,7 @@
 
 import org.bedepay.rareItems.RareItems;
 import org.bedepay.rareItems.config.ConfigManager;
+import org.bedepay.rareItems.metrics.PluginMetrics;
 import org.bedepay.rareItems.rarity.Rarity;
 import org.bedepay.rareItems.util.ItemUtil;
 import org.bedepay.rareItems.util.MaterialTypeChecker;
@@ -15,23 +16,32 @@
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 public class DungeonLootListener implements Listener {
     
     private final RareItems plugin;
     private final ConfigManager configManager;
-    private final MaterialTypeChecker materialTypeChecker;
-    private final Random random = new Random();
     
     public DungeonLootListener(RareItems plugin, ConfigManager configManager) {
         this.plugin = plugin;
         this.configManager = configManager;
-        this.materialTypeChecker = new MaterialTypeChecker(plugin);
     }
     
     @EventHandler(priority = EventPriority.HIGH)
     public void onLootGenerate(LootGenerateEvent event) {
+        long start = plugin.getMetrics().start();
+        try {
+            processLoot(event);
+        } finally {
+            plugin.getMetrics().stop(PluginMetrics.Hook.LOOT_GENERATE, start);
+        }
+    }
+    
+    private void processLoot(LootGenerateEvent event) {
+        if (!configManager.isEnabled() || !configManager.isDungeonLootEnabled()) {
+            return;
+        }
+        
         LootContext context = event.getLootContext();
         
         // Проверяем, что это лут из структуры (данжа)
@@ -79,33 +89,17 @@ private boolean isDungeonLoot(LootContext context) {
     }
     
     private boolean isWeaponOrArmor(Material material) {
-        return materialTypeChecker.isWeaponOrArmor(material);
+        return MaterialTypeChecker.isWeaponOrArmor(material);
     }
     
     private ItemStack applyDungeonRarity(ItemStack item) {
-        // Особые шансы для данжей - больше редких предметов!
-        double roll = random.nextDouble() * 100.0;
-        
-        // Улучшенные шансы для данжей
-        String rarityId = null;
-        if (roll < 1.0) {           // 1% - очень редкие
-            rarityId = random.nextDouble() < 0.3 ? "mythic" : 
-                      random.nextDouble() < 0.6 ? "legendary" : "epic";
-        } else if (roll < 5.0) {    // 4% - редкие
-            rarityId = random.nextDouble() < 0.5 ? "epic" : "rare";
-        } else if (roll < 15.0) {   // 10% - необычные
-            rarityId = random.nextDouble() < 0.3 ? "rare" : "uncommon";
-        } else if (roll < 40.0) {   // 25% - обычные с бонусом
-            rarityId = "common";
-        }
-        
-        if (rarityId != null) {
-            Rarity rarity = configManager.getRarityById(rarityId);
-            if (rarity != null) {
-                return ItemUtil.applyRarity(plugin, item, rarity);
-            }
+        // Шансы для данжей берутся из dungeonLoot.dungeonChances
+        Rarity rarity = configManager.getDungeonRoller().roll();
+        plugin.getMetrics().roll(PluginMetrics.RollSource.DUNGEON, rarity);
+        if (rarity != null) {
+            return ItemUtil.applyRarity(plugin, item, rarity);
         }
         
         return null; // Возвращаем null если не применили редкость
     }
-} 
\ No newline at end of file
+} 
@@ -2,12 +2,20 @@
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.title.Title;
 import org.bedepay.rareItems.RareItems;
 import org.bedepay.rareItems.config.ConfigManager;
+import org.bedepay.rareItems.config.Settings;
+import org.bedepay.rareItems.metrics.PluginMetrics;
+import org.bedepay.rareItems.metrics.TraceRecorder;
 import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityCodec;
+import org.bedepay.rareItems.rarity.RarityRegistry;
+import org.bedepay.rareItems.rarity.RarityResolver;
 import org.bedepay.rareItems.util.ItemUtil;
 import org.bedepay.rareItems.util.MaterialTypeChecker;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
@@ -17,166 +25,354 @@
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.PrepareItemCraftEvent;
 import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.CraftingInventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.RecipeChoice;
 import org.bukkit.inventory.ShapelessRecipe;
 import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.Keyed;
 import org.bukkit.NamespacedKey;
-import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.enchantments.Enchantment;
 
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
 
 public class RarityUpgradeListener implements Listener {
     
     private final RareItems plugin;
     private final ConfigManager configManager;
-    private final MaterialTypeChecker materialTypeChecker;
     private final Random random = new Random();
     
-    // Карта улучшений редкости
-    private final Map<String, String> rarityUpgrades = Map.of(
-        "common", "uncommon",
-        "uncommon", "rare", 
-        "rare", "epic",
-        "epic", "legendary",
-        "legendary", "mythic",
-        "mythic", "divine",
-        "divine", "celestial"
-        // celestial - максимальная редкость
-    );
+    // Рецепт "два предмета оружия/брони" для всех материалов
+    private final NamespacedKey recipeKey;
+    
+    // Все зарегистрированные рецепты улучшения: основной и варианты со специальными ингредиентами
+    private final List<NamespacedKey> recipeKeys = new ArrayList<>();
+    
+    // Ингредиенты, под которые зарегистрированы рецепты
+    private Map<String, List<Settings.Ingredient>> registeredIngredients = Map.of();
+    
+    // Улучшения, посчитанные при подготовке крафта (только основной поток)
+    private final Map<UUID, UpgradePlan> plans = new HashMap<>();
     
     public RarityUpgradeListener(RareItems plugin, ConfigManager configManager) {
         this.plugin = plugin;
         this.configManager = configManager;
-        this.materialTypeChecker = new MaterialTypeChecker(plugin);
+        this.recipeKey = new NamespacedKey(plugin, "upgrade_combination");
         
-        // Регистрируем кастомные рецепты
-        registerUpgradeRecipes();
+        // Регистрируем рецепт комбинирования
+        registerUpgradeRecipe();
     }
     
-    private void registerUpgradeRecipes() {
-        // Регистрируем общий рецепт для любых двух одинаковых предметов
+    /**
+     * Регистрирует один бесформенный рецепт из двух любых предметов оружия или брони
+     * вместо отдельного рецепта на каждый материал. Совпадение типа и редкости
+     * проверяется при подготовке крафта в {@link #onPrepareUpgrade(PrepareItemCraftEvent)}.
+     * <p>
+     * Бесформенный рецепт совпадает только с точным набором предметов, поэтому для каждого
+     * набора специальных ингредиентов регистрируется свой вариант с этими ингредиентами.
+     */
+    private void registerUpgradeRecipe() {
+        List<Material> materials = new ArrayList<>();
         for (Material material : Material.values()) {
-            if (isWeaponOrArmor(material)) {
-                registerRecipeForMaterial(material);
+            if (!material.isLegacy() && isWeaponOrArmor(material)) {
+                materials.add(material);
+            }
+        }
+        if (materials.isEmpty()) {
+            return;
+        }
+        
+        RecipeChoice choice = new RecipeChoice.MaterialChoice(materials);
+        // Результат - заглушка, настоящий подставляется при подготовке крафта
+        ItemStack placeholder = new ItemStack(materials.get(0));
+        addRecipe(recipeKey, choice, placeholder, List.of());
+        
+        // Одинаковые наборы ингредиентов у разных редкостей - один рецепт
+        Set<List<Settings.Ingredient>> variants = new LinkedHashSet<>();
+        for (Rarity rarity : configManager.getRarities()) {
+            List<Settings.Ingredient> ingredients = configManager.getSettings().upgrade().ingredients(rarity.id());
+            if (ingredients.isEmpty() || variants.contains(ingredients)) {
+                continue;
             }
+            int slots = 2 + ingredients.stream().mapToInt(Settings.Ingredient::count).sum();
+            if (slots > Settings.Ingredient.GRID_SLOTS) {
+                // ConfigValidator уже предупредил об этом
+                continue;
+            }
+            variants.add(ingredients);
+            addRecipe(new NamespacedKey(plugin, recipeKey.getKey() + "_" + variants.size()), choice, placeholder, ingredients);
         }
+        registeredIngredients = currentIngredients();
     }
     
-    private void registerRecipeForMaterial(Material material) {
-        NamespacedKey key = new NamespacedKey(plugin, "upgrade_" + material.name().toLowerCase());
-        
-        ShapelessRecipe recipe = new ShapelessRecipe(key, new ItemStack(material));
-        recipe.addIngredient(2, material); // Два одинаковых предмета
+    private void addRecipe(NamespacedKey key, RecipeChoice choice, ItemStack placeholder,
+                           List<Settings.Ingredient> ingredients) {
+        ShapelessRecipe recipe = new ShapelessRecipe(key, placeholder);
+        recipe.addIngredient(choice);
+        recipe.addIngredient(choice);
+        for (Settings.Ingredient ingredient : ingredients) {
+            recipe.addIngredient(ingredient.count(), ingredient.material());
+        }
         
         try {
             plugin.getServer().addRecipe(recipe);
         } catch (Exception e) {
             // Рецепт уже существует, игнорируем
         }
+        recipeKeys.add(key);
     }
     
-    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
-    public void onCraftUpgrade(CraftItemEvent event) {
-        if (!configManager.isEnabled()) {
+    private Map<String, List<Settings.Ingredient>> currentIngredients() {
+        Settings.Upgrade upgrade = configManager.getSettings().upgrade();
+        return upgrade.specialIngredientsEnabled() ? upgrade.specialIngredients() : Map.of();
+    }
+    
+    /**
+     * Перерегистрирует рецепты под текущую классификацию материалов и специальные ингредиенты
+     * (после перезагрузки; без изменений рецепты не трогаются)
+     *
+     * @param materialsChanged изменилась настройка мотыг
+     */
+    public void refreshRecipes(boolean materialsChanged) {
+        if (!materialsChanged && registeredIngredients.equals(currentIngredients())) {
+            return;
+        }
+        for (NamespacedKey key : recipeKeys) {
+            plugin.getServer().removeRecipe(key);
+        }
+        recipeKeys.clear();
+        registerUpgradeRecipe();
+    }
+    
+    /**
+     * Считает улучшение один раз при подготовке крафта и показывает готовый результат
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPrepareUpgrade(PrepareItemCraftEvent event) {
+        long start = plugin.getMetrics().start();
+        try {
+            processPrepare(event);
+        } finally {
+            plugin.getMetrics().stop(PluginMetrics.Hook.UPGRADE_PREPARE, start);
+        }
+    }
+    
+    private void processPrepare(PrepareItemCraftEvent event) {
+        if (!isUpgradeRecipe(event.getRecipe()) || !(event.getView().getPlayer() instanceof Player player)) {
             return;
         }
         
-        // Проверяем, включена ли система улучшений
-        if (!plugin.getConfig().getBoolean("upgradeSystem.combination.enabled", true)) {
+        ItemStack[] matrix = event.getInventory().getMatrix();
+        if (!hasRarityItem(matrix)) {
+            // Рецепт на любые два предмета перекрывает ванильную починку - собираем ее сами
+            plans.remove(player.getUniqueId());
+            event.getInventory().setResult(repairResult(matrix));
             return;
         }
         
-        if (!(event.getWhoClicked() instanceof Player player)) {
+        UpgradePlan plan = planUpgrade(matrix);
+        if (plan == null) {
+            plans.remove(player.getUniqueId());
+            event.getInventory().setResult(null);
             return;
         }
         
-        ItemStack[] matrix = event.getInventory().getMatrix();
-        if (matrix.length < 2) {
+        plans.put(player.getUniqueId(), plan);
+        event.getInventory().setResult(plan.preview());
+    }
+    
+    /**
+     * По клику только бросает шанс успеха и выдает заранее собранный предмет
+     */
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onCraftUpgrade(CraftItemEvent event) {
+        if (!isUpgradeRecipe(event.getRecipe()) || !(event.getWhoClicked() instanceof Player player)) {
+            return;
+        }
+        if (!hasRarityItem(event.getInventory().getMatrix())) {
+            // Обычная починка - результат уже подставлен при подготовке крафта
             return;
         }
         
-        // Ищем два одинаковых предмета с редкостью
-        ItemStack item1 = null;
-        ItemStack item2 = null;
-        List<ItemStack> otherItems = new ArrayList<>();
+        TraceRecorder tracer = plugin.getTraceRecorder();
+        long traceStart = tracer.start(player);
         
-        for (ItemStack item : matrix) {
-            if (item != null && item.getType() != Material.AIR) {
-                Rarity rarity = ItemUtil.getRarity(item);
-                if (rarity != null) {
-                    if (item1 == null) {
-                        item1 = item;
-                    } else if (item2 == null && canCombineItems(item1, item)) {
-                        item2 = item;
-                    } else {
-                        otherItems.add(item);
-                    }
-                } else {
-                    otherItems.add(item);
-                }
+        ItemStack[] matrix = event.getInventory().getMatrix();
+        UpgradePlan plan = plans.remove(player.getUniqueId());
+        if (plan == null || !plan.matches(matrix)) {
+            // Сетка изменилась без подготовки крафта - считаем заново
+            plan = planUpgrade(matrix);
+        }
+        if (plan == null || plan.failure() != null) {
+            // Причину сообщаем только по клику: подготовка крафта вызывается на каждое изменение сетки
+            if (plan != null) {
+                player.sendMessage(Component.text("❌ " + plan.failure()).color(NamedTextColor.RED));
             }
+            tracer.record(traceStart, player, TraceRecorder.Stage.UPGRADE, plan != null ? plan.rarity() : null,
+                    TraceRecorder.Outcome.FAILED, Double.NaN, Double.NaN);
+            event.setCancelled(true);
+            return;
         }
         
-        // Если не нашли два подходящих предмета - выходим
-        if (item1 == null || item2 == null) {
+        // НОВАЯ СИСТЕМА ШАНСОВ ПРОВАЛА
+        if (!rollSuccessChance(player, plan.rarity(), plan.item1(), plan.item2(), traceStart)) {
+            event.setCancelled(true);
             return;
         }
         
-        Rarity rarity1 = ItemUtil.getRarity(item1);
-        Rarity rarity2 = ItemUtil.getRarity(item2);
+        // Готовый предмет без метки улучшения (CraftListener уже пропустил этот крафт)
+        event.getInventory().setResult(plan.result().clone());
+        
+        // Уведомление игрока
+        plugin.getMetrics().upgrade(PluginMetrics.UpgradeOutcome.SUCCESS);
+        sendUpgradeSuccess(player, plan.next());
+        playUpgradeEffects(player, plan.next());
+        player.sendMessage(Component.text("✨ Предмет улучшен до " + plan.next().name() + " редкости!").color(plan.next().color()));
         
         if (configManager.isDebugMode()) {
-            plugin.getLogger().info(String.format("[RareItems Debug] Попытка улучшения: %s | Редкость 1: %s | Редкость 2: %s", 
-                                    item1.getType().name(), 
-                                    (rarity1 != null ? rarity1.id() : "null"),
-                                    (rarity2 != null ? rarity2.id() : "null")));
+            plugin.getLogger().info(String.format("[RareItems Debug] Игрок %s успешно улучшил предмет: %s -> %s",
+                                    player.getName(), plan.rarity().id(), plan.next().id()));
+        }
+    }
+    
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        plans.remove(event.getPlayer().getUniqueId());
+    }
+    
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        plans.remove(event.getPlayer().getUniqueId());
+    }
+    
+    /**
+     * Проверяет, что рецепт - один из зарегистрированных рецептов улучшения
+     * (их результат - заглушка, которую нельзя выдавать как обычный крафт)
+     */
+    public boolean isUpgradeRecipe(Recipe recipe) {
+        return recipe instanceof Keyed keyed && recipeKeys.contains(keyed.getKey());
+    }
+    
+    private static boolean hasRarityItem(ItemStack[] matrix) {
+        for (ItemStack item : matrix) {
+            if (item != null && !item.getType().isAir() && ItemUtil.getRarity(item) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Ванильная починка: два одинаковых целых предмета складывают оставшуюся прочность
+     * с бонусом 5% от максимальной, из зачарований остаются только проклятия.
+     *
+     * @return починенный предмет или null, если сетка не подходит для починки
+     */
+    private static ItemStack repairResult(ItemStack[] matrix) {
+        ItemStack item1 = null;
+        ItemStack item2 = null;
+        for (ItemStack item : matrix) {
+            if (item == null || item.getType().isAir()) {
+                continue;
+            }
+            if (item1 == null) {
+                item1 = item;
+            } else if (item2 == null && item.getType() == item1.getType()) {
+                item2 = item;
+            } else {
+                return null;
+            }
+        }
+        if (item2 == null || item1.getAmount() != 1 || item2.getAmount() != 1) {
+            return null;
         }
         
-        // Проверяем, что оба предмета имеют одинаковую редкость
-        if (rarity1 == null || rarity2 == null || !rarity1.id().equals(rarity2.id())) {
-            if (configManager.isDebugMode()) {
-                plugin.getLogger().info("[RareItems Debug] Улучшение невозможно: предметы не имеют одинаковой редкости");
+        int maxDurability = item1.getType().getMaxDurability();
+        if (maxDurability <= 0) {
+            return null;
+        }
+        int remaining = (maxDurability - item1.getDurability()) + (maxDurability - item2.getDurability())
+                + maxDurability * 5 / 100;
+        
+        ItemStack repaired = new ItemStack(item1.getType());
+        repaired.setDurability((short) Math.max(0, maxDurability - remaining));
+        
+        Map<Enchantment, Integer> curses = new HashMap<>();
+        item1.getEnchantments().forEach((ench, level) -> {
+            if (ench.isCursed()) {
+                curses.merge(ench, level, Math::max);
             }
-            return;
+        });
+        item2.getEnchantments().forEach((ench, level) -> {
+            if (ench.isCursed()) {
+                curses.merge(ench, level, Math::max);
+            }
+        });
+        repaired.addUnsafeEnchantments(curses);
+        return repaired;
+    }
+    
+    /**
+     * Проверяет сетку и собирает улучшенный предмет или возвращает null, если комбинировать нельзя.
+     * Обычные предметы в сетке считаются специальными ингредиентами улучшения.
+     * Ничего не пишет игроку: невыполненное требование попадает в план и описание превью.
+     */
+    private UpgradePlan planUpgrade(ItemStack[] matrix) {
+        if (!configManager.isEnabled() || !configManager.getSettings().upgrade().combinationEnabled()) {
+            return null;
         }
         
-        // Получаем следующую редкость
-        String nextRarityId = rarityUpgrades.get(rarity1.id());
-        if (nextRarityId == null) {
-            if (configManager.isDebugMode()) {
-                plugin.getLogger().info(String.format("[RareItems Debug] Улучшение: %s уже максимальная редкость", rarity1.id()));
+        // Ищем два одинаковых предмета одной редкости
+        ItemStack item1 = null;
+        ItemStack item2 = null;
+        Rarity rarity = null;
+        List<ItemStack> ingredients = new ArrayList<>();
+        for (ItemStack item : matrix) {
+            if (item == null || item.getType().isAir()) {
+                continue;
+            }
+            Rarity itemRarity = ItemUtil.getRarity(item);
+            if (itemRarity == null) {
+                ingredients.add(item);
+                continue;
+            }
+            if (item1 == null) {
+                item1 = item;
+                rarity = itemRarity;
+            } else if (item2 == null && item.getType() == item1.getType() && itemRarity == rarity) {
+                item2 = item;
+            } else {
+                return null;
             }
-            return; // Максимальная редкость
         }
         
-        Rarity nextRarity = configManager.getRarityById(nextRarityId);
+        if (item1 == null || item2 == null) {
+            return null;
+        }
+        
+        // Получаем следующую редкость (цепочка улучшений - порядок редкостей в конфиге)
+        Rarity nextRarity = RarityRegistry.current().next(rarity.id());
         if (nextRarity == null) {
             if (configManager.isDebugMode()) {
-                plugin.getLogger().info(String.format("[RareItems Debug] Улучшение: редкость %s не найдена в конфиге", nextRarityId));
+                plugin.getLogger().info(String.format("[RareItems Debug] Улучшение: %s уже максимальная редкость", rarity.id()));
             }
-            return;
+            return null; // Максимальная редкость
         }
         
         // НОВЫЕ ПРОВЕРКИ ТРЕБОВАНИЙ
-        if (!checkUpgradeRequirements(player, item1, item2, rarity1, nextRarityId, otherItems)) {
-            event.setCancelled(true);
-            return;
-        }
-        
-        // НОВАЯ СИСТЕМА ШАНСОВ ПРОВАЛА
-        if (!rollSuccessChance(player, rarity1.id(), item1, item2)) {
-            event.setCancelled(true);
-            return;
-        }
+        String failure = checkUpgradeRequirements(item1, item2, nextRarity.id(), ingredients);
         
         // Создаем улучшенный предмет
         ItemStack upgradedItem = new ItemStack(item1.getType());
@@ -197,75 +393,61 @@ public void onCraftUpgrade(CraftItemEvent event) {
         
         upgradedItem.addUnsafeEnchantments(combinedEnchantments);
         
-        // Применяем редкость
-        ItemUtil.applyRarity(plugin, upgradedItem, nextRarity);
+        // Применяем редкость и считаем улучшения по лучшему из двух предметов
+        upgradedItem = ItemUtil.applyRarity(plugin, upgradedItem, nextRarity);
+        int upgrades = Math.max(upgradesOf(item1), upgradesOf(item2)) + 1;
+        RarityCodec.update(upgradedItem, data -> data.withUpgrades(upgrades));
         
-        // Помечаем как результат улучшения
-        ItemMeta meta = upgradedItem.getItemMeta();
-        if (meta != null) {
-            meta.getPersistentDataContainer().set(
-                new NamespacedKey(plugin, "rarity_upgrade"), 
-                PersistentDataType.BOOLEAN, 
-                true
-            );
-            upgradedItem.setItemMeta(meta);
+        // Превью помечено как результат улучшения, чтобы CraftListener не бросал случайную редкость
+        ItemStack preview = upgradedItem.clone();
+        RarityCodec.update(preview, data -> data.withFlags(data.flags() | RarityCodec.FLAG_UPGRADE_PREVIEW));
+        if (failure != null) {
+            showFailure(preview, failure);
         }
         
-        event.getInventory().setResult(upgradedItem);
-        
-        // Уведомление игрока
-        sendUpgradeSuccess(player, nextRarity);
-        
-        if (configManager.isDebugMode()) {
-            plugin.getLogger().info(String.format("[RareItems Debug] Успешное улучшение: %s -> %s", 
-                                    rarity1.id(), nextRarity.id()));
-        }
+        return new UpgradePlan(copyOf(matrix), item1.clone(), item2.clone(), rarity, nextRarity, upgradedItem, preview,
+                failure);
     }
     
-    @EventHandler(priority = EventPriority.HIGHEST)
-    public void onCraftItemComplete(CraftItemEvent event) {
-        ItemStack result = event.getCurrentItem();
-        if (result == null || result.getType() == Material.AIR) {
-            return;
-        }
-        
-        // Проверяем, является ли это результатом улучшения редкости
-        ItemMeta meta = result.getItemMeta();
-        if (meta != null && meta.getPersistentDataContainer().has(new NamespacedKey(plugin, "rarity_upgrade"), PersistentDataType.BOOLEAN)) {
-            // Убираем метку улучшения после завершения крафта
-            meta.getPersistentDataContainer().remove(new NamespacedKey(plugin, "rarity_upgrade"));
-            result.setItemMeta(meta);
-            
-            // Играем эффекты улучшения
-            if (event.getWhoClicked() instanceof Player player) {
-                playUpgradeEffects(player, result);
-                
-                // Уведомляем о успешном улучшении
-                Rarity rarity = ItemUtil.getRarity(result);
-                if (rarity != null) {
-                    player.sendMessage(Component.text("✨ Предмет улучшен до " + rarity.name() + " редкости!").color(rarity.color()));
-                    
-                    if (configManager.isDebugMode()) {
-                        plugin.getLogger().info(String.format("[RareItems Debug] Игрок %s успешно улучшил предмет до %s", 
-                                                player.getName(), rarity.id()));
-                    }
-                }
-            }
+    /**
+     * Дописывает в описание превью невыполненное требование
+     */
+    private static void showFailure(ItemStack preview, String failure) {
+        ItemMeta meta = preview.getItemMeta();
+        List<Component> lore = meta.lore() != null ? new ArrayList<>(meta.lore()) : new ArrayList<>();
+        lore.add(Component.empty());
+        lore.add(Component.text("❌ " + failure)
+                .color(NamedTextColor.RED)
+                .decoration(TextDecoration.ITALIC, false));
+        meta.lore(lore);
+        preview.setItemMeta(meta);
+    }
+    
+    private static int upgradesOf(ItemStack item) {
+        RarityCodec.ItemData data = RarityResolver.getData(item);
+        return data != null ? data.upgrades() : 0;
+    }
+    
+    private static ItemStack[] copyOf(ItemStack[] matrix) {
+        ItemStack[] copy = new ItemStack[matrix.length];
+        for (int i = 0; i < matrix.length; i++) {
+            copy[i] = matrix[i] != null ? matrix[i].clone() : null;
         }
+        return copy;
     }
     
-    private void playUpgradeEffects(Player player, ItemStack result) {
+    private void playUpgradeEffects(Player player, Rarity rarity) {
         // Звук улучшения
         player.playSound(player.getLocation(), Sound.BLOCK_ENCHANTMENT_TABLE_USE, 1.0f, 1.5f);
         player.playSound(player.getLocation(), Sound.ENTITY_PLAYER_LEVELUP, 0.7f, 1.8f);
         
         // Частицы
-        player.getWorld().spawnParticle(Particle.ENCHANTMENT_TABLE, player.getLocation().add(0, 1, 0), 30, 1, 1, 1, 0.1);
-        player.getWorld().spawnParticle(Particle.FIREWORKS_SPARK, player.getLocation().add(0, 1, 0), 20, 0.5, 0.5, 0.5, 0.1);
+        Location center = player.getLocation().add(0, 1, 0);
+        plugin.getEffectRenderer().burst(player, center, Particle.ENCHANTMENT_TABLE, 30, 1, 1, 1, 0.1);
+        plugin.getEffectRenderer().burst(player, center, Particle.FIREWORKS_SPARK, 20, 0.5, 0.5, 0.5, 0.1);
         
         // Title для особых редкостей
-        Rarity rarity = ItemUtil.getRarity(result);
-        if (rarity != null && (rarity.id().equals("mythic") || rarity.id().equals("divine") || rarity.id().equals("celestial"))) {
+        if ((rarity.id().equals("mythic") || rarity.id().equals("divine") || rarity.id().equals("celestial"))) {
             player.showTitle(Title.title(
                     Component.text("УЛУЧШЕНИЕ!").color(rarity.color()),
                     Component.text(rarity.getDisplayName() + " предмет создан!").color(rarity.color()),
@@ -279,107 +461,84 @@ private void playUpgradeEffects(Player player, ItemStack result) {
     }
     
     private boolean isWeaponOrArmor(Material material) {
-        return materialTypeChecker.isWeaponOrArmor(material);
-    }
-    
-    /**
-     * Метод для перерегистрации рецептов при перезагрузке
-     */
-    public void reregisterRecipes() {
-        // Удаляем старые рецепты
-        for (Material material : Material.values()) {
-            if (isWeaponOrArmor(material)) {
-                NamespacedKey key = new NamespacedKey(plugin, "upgrade_" + material.name().toLowerCase());
-                plugin.getServer().removeRecipe(key);
-            }
-        }
-        
-        // Регистрируем заново
-        registerUpgradeRecipes();
+        return MaterialTypeChecker.isWeaponOrArmor(material);
     }
     
     /**
      * Проверяет все требования для улучшения
+     *
+     * @return причина отказа или null, если все требования выполнены
      */
-    private boolean checkUpgradeRequirements(Player player, ItemStack item1, ItemStack item2, 
-                                           Rarity currentRarity, String nextRarityId, 
-                                           List<ItemStack> otherItems) {
+    private String checkUpgradeRequirements(ItemStack item1, ItemStack item2, String nextRarityId,
+                                            List<ItemStack> ingredients) {
         
         // 1. Проверка прочности предметов
-        if (!checkDurabilityRequirement(player, item1, item2)) {
-            return false;
-        }
+        String failure = checkDurabilityRequirement(item1, item2);
         
         // 2. Проверка требований к зачарованиям
-        if (!checkEnchantmentRequirement(player, item1, item2, nextRarityId)) {
-            return false;
+        if (failure == null) {
+            failure = checkEnchantmentRequirement(item1, item2, nextRarityId);
         }
         
         // 3. Проверка требований к материалу
-        if (!checkMaterialRequirement(player, item1, nextRarityId)) {
-            return false;
+        if (failure == null) {
+            failure = checkMaterialRequirement(item1, nextRarityId);
         }
         
         // 4. Проверка специальных ингредиентов
-        if (!checkSpecialIngredients(player, nextRarityId, otherItems)) {
-            return false;
+        if (failure == null) {
+            failure = checkSpecialIngredients(nextRarityId, ingredients);
         }
         
-        return true;
+        return failure;
     }
     
     /**
      * Проверяет требование к прочности предметов
      */
-    private boolean checkDurabilityRequirement(Player player, ItemStack item1, ItemStack item2) {
-        int minDurabilityPercent = plugin.getConfig().getInt("upgradeSystem.combination.requirements.minDurabilityPercent", 80);
+    private String checkDurabilityRequirement(ItemStack item1, ItemStack item2) {
+        int minDurabilityPercent = configManager.getSettings().upgrade().minDurabilityPercent();
         
         if (item1.getType().getMaxDurability() > 0) {
             double durability1 = ((double)(item1.getType().getMaxDurability() - item1.getDurability()) / item1.getType().getMaxDurability()) * 100;
             if (durability1 < minDurabilityPercent) {
-                player.sendMessage(Component.text("❌ Первый предмет слишком изношен! Нужно минимум " + minDurabilityPercent + "% прочности")
-                    .color(NamedTextColor.RED));
-                return false;
+                return "Первый предмет слишком изношен! Нужно минимум " + minDurabilityPercent + "% прочности";
             }
         }
         
         if (item2.getType().getMaxDurability() > 0) {
             double durability2 = ((double)(item2.getType().getMaxDurability() - item2.getDurability()) / item2.getType().getMaxDurability()) * 100;
             if (durability2 < minDurabilityPercent) {
-                player.sendMessage(Component.text("❌ Второй предмет слишком изношен! Нужно минимум " + minDurabilityPercent + "% прочности")
-                    .color(NamedTextColor.RED));
-                return false;
+                return "Второй предмет слишком изношен! Нужно минимум " + minDurabilityPercent + "% прочности";
             }
         }
         
-        return true;
+        return null;
     }
     
     /**
      * Проверяет требование к зачарованиям
      */
-    private boolean checkEnchantmentRequirement(Player player, ItemStack item1, ItemStack item2, String targetRarity) {
-        int requiredEnchants = plugin.getConfig().getInt("upgradeSystem.combination.requirements.enchantmentRequirements." + targetRarity, 0);
+    private String checkEnchantmentRequirement(ItemStack item1, ItemStack item2, String targetRarity) {
+        int requiredEnchants = configManager.getSettings().upgrade().requiredEnchantments(targetRarity);
         
         if (requiredEnchants > 0) {
             int enchants1 = item1.getEnchantments().size();
             int enchants2 = item2.getEnchantments().size();
             
             if (enchants1 < requiredEnchants || enchants2 < requiredEnchants) {
-                player.sendMessage(Component.text("❌ Для создания " + targetRarity + " предмета нужно минимум " + requiredEnchants + " зачарований на каждом предмете!")
-                    .color(NamedTextColor.RED));
-                return false;
+                return "Для создания " + targetRarity + " предмета нужно минимум " + requiredEnchants + " зачарований на каждом предмете!";
             }
         }
         
-        return true;
+        return null;
     }
     
     /**
      * Проверяет требование к материалу
      */
-    private boolean checkMaterialRequirement(Player player, ItemStack item, String targetRarity) {
-        List<String> allowedMaterials = plugin.getConfig().getStringList("upgradeSystem.combination.requirements.materialRequirements." + targetRarity);
+    private String checkMaterialRequirement(ItemStack item, String targetRarity) {
+        List<String> allowedMaterials = configManager.getSettings().upgrade().allowedMaterials(targetRarity);
         
         if (!allowedMaterials.isEmpty()) {
             String itemMaterial = item.getType().name();
@@ -393,71 +552,67 @@ private boolean checkMaterialRequirement(Player player, ItemStack item, String t
             }
             
             if (!materialAllowed) {
-                player.sendMessage(Component.text("❌ Для создания " + targetRarity + " можно использовать только: " + String.join(", ", allowedMaterials))
-                    .color(NamedTextColor.RED));
-                return false;
+                return "Для создания " + targetRarity + " можно использовать только: " + String.join(", ", allowedMaterials);
             }
         }
         
-        return true;
+        return null;
     }
     
     /**
-     * Проверяет требование к специальным ингредиентам
+     * Проверяет, что в сетке лежат ровно специальные ингредиенты целевой редкости
+     *
+     * @param ingredients предметы сетки без редкости
      */
-    private boolean checkSpecialIngredients(Player player, String targetRarity, List<ItemStack> otherItems) {
-        if (!plugin.getConfig().getBoolean("upgradeSystem.specialIngredients.enabled", true)) {
-            return true;
+    private String checkSpecialIngredients(String targetRarity, List<ItemStack> ingredients) {
+        // Крафт забирает по одному предмету из слота, поэтому считаем слоты, а не размер стаков
+        Map<Material, Integer> slots = new HashMap<>();
+        for (ItemStack item : ingredients) {
+            slots.merge(item.getType(), 1, Integer::sum);
         }
         
-        List<String> requiredMaterials = plugin.getConfig().getStringList("upgradeSystem.specialIngredients.requirements." + targetRarity + ".materials");
-        List<Integer> requiredCounts = plugin.getConfig().getIntegerList("upgradeSystem.specialIngredients.requirements." + targetRarity + ".count");
-        
-        if (requiredMaterials.isEmpty()) {
-            return true; // Нет требований к ингредиентам
-        }
-        
-        // Если count не указан, считаем что нужно по 1 штуке каждого
-        if (requiredCounts.isEmpty()) {
-            requiredCounts = Collections.nCopies(requiredMaterials.size(), 1);
-        }
-        
-        Map<Material, Integer> availableItems = new HashMap<>();
-        for (ItemStack item : otherItems) {
-            availableItems.put(item.getType(), availableItems.getOrDefault(item.getType(), 0) + item.getAmount());
+        for (Settings.Ingredient ingredient : configManager.getSettings().upgrade().ingredients(targetRarity)) {
+            Integer available = slots.remove(ingredient.material());
+            if (available == null || available < ingredient.count()) {
+                return "Для создания " + targetRarity + " нужно: " + ingredient.count() + " x " + ingredient.material().name();
+            }
+            if (available > ingredient.count()) {
+                slots.put(ingredient.material(), available - ingredient.count());
+            }
         }
         
-        for (int i = 0; i < requiredMaterials.size(); i++) {
-            Material requiredMaterial = Material.valueOf(requiredMaterials.get(i));
-            int requiredCount = requiredCounts.get(i);
-            int availableCount = availableItems.getOrDefault(requiredMaterial, 0);
-            
-            if (availableCount < requiredCount) {
-                player.sendMessage(Component.text("❌ Для создания " + targetRarity + " нужно: " + requiredCount + " x " + requiredMaterial.name())
-                    .color(NamedTextColor.RED));
-                return false;
-            }
+        // Лишние предметы сгорели бы вместе с ингредиентами
+        if (!slots.isEmpty()) {
+            return "Для создания " + targetRarity + " уберите из сетки: " + slots.keySet();
         }
         
-        return true;
+        return null;
     }
     
     /**
      * Проверяет шанс успеха комбинирования
      */
-    private boolean rollSuccessChance(Player player, String currentRarity, ItemStack item1, ItemStack item2) {
-        double successChance = plugin.getConfig().getDouble("upgradeSystem.combination.successChances." + currentRarity, 100.0);
+    private boolean rollSuccessChance(Player player, Rarity currentRarity, ItemStack item1, ItemStack item2, long traceStart) {
+        TraceRecorder tracer = plugin.getTraceRecorder();
+        double successChance = configManager.getSettings().upgrade().successChance(currentRarity.id());
         
         if (successChance >= 100.0) {
+            tracer.record(traceStart, player, TraceRecorder.Stage.UPGRADE, currentRarity,
+                    TraceRecorder.Outcome.TRIGGERED, Double.NaN, successChance);
             return true; // Гарантированный успех
         }
         
-        if (random.nextDouble() * 100 > successChance) {
+        double roll = random.nextDouble() * 100;
+        if (roll > successChance) {
+            tracer.record(traceStart, player, TraceRecorder.Stage.UPGRADE, currentRarity,
+                    TraceRecorder.Outcome.CHANCE_FAILED, roll, successChance);
             // Провал комбинирования
-            handleCombinationFailure(player, currentRarity, item1, item2);
+            handleCombinationFailure(player, currentRarity.id(), item1, item2);
             return false;
         }
         
+        tracer.record(traceStart, player, TraceRecorder.Stage.UPGRADE, currentRarity,
+                TraceRecorder.Outcome.TRIGGERED, roll, successChance);
         return true;
     }
     
@@ -465,13 +620,15 @@ private boolean rollSuccessChance(Player player, String currentRarity, ItemStack
      * Обрабатывает провал комбинирования
      */
     private void handleCombinationFailure(Player player, String currentRarity, ItemStack item1, ItemStack item2) {
-        boolean destroyOneItem = plugin.getConfig().getBoolean("upgradeSystem.combination.failureConsequences.destroyOneItem", true);
-        double criticalFailureChance = plugin.getConfig().getDouble("upgradeSystem.combination.failureConsequences.criticalFailureChance", 10.0);
-        double downgradeChance = plugin.getConfig().getDouble("upgradeSystem.combination.failureConsequences.downgradeChance", 30.0);
+        Settings.Upgrade upgrade = configManager.getSettings().upgrade();
+        boolean destroyOneItem = upgrade.destroyOneItem();
+        double criticalFailureChance = upgrade.criticalFailureChance();
+        double downgradeChance = upgrade.downgradeChance();
         
         // Проверяем критический провал
         if (random.nextDouble() * 100 < criticalFailureChance) {
             // Критический провал - потеря обоих предметов
+            plugin.getMetrics().upgrade(PluginMetrics.UpgradeOutcome.CRITICAL_FAILURE);
             player.sendMessage(Component.text("💥 КРИТИЧЕСКИЙ ПРОВАЛ! Оба предмета уничтожены!")
                 .color(NamedTextColor.DARK_RED));
             player.playSound(player.getLocation(), Sound.ENTITY_GENERIC_EXPLODE, 1.0f, 0.8f);
@@ -481,6 +638,7 @@ private void handleCombinationFailure(Player player, String currentRarity, ItemS
         }
         
         // Обычный провал
+        plugin.getMetrics().upgrade(PluginMetrics.UpgradeOutcome.FAILURE);
         if (destroyOneItem) {
             player.sendMessage(Component.text("❌ Комбинирование провалилось! Один предмет утерян.")
                 .color(NamedTextColor.RED));
@@ -492,55 +650,20 @@ private void handleCombinationFailure(Player player, String currentRarity, ItemS
         // Проверяем шанс понижения редкости
         if (random.nextDouble() * 100 < downgradeChance) {
             // Возвращаем предмет с пониженной редкостью
-            String downgradedRarity = getDowngradedRarity(currentRarity);
-            if (downgradedRarity != null) {
-                Rarity newRarity = configManager.getRarityById(downgradedRarity);
-                if (newRarity != null) {
-                    ItemStack downgradedItem = new ItemStack(item1.getType());
-                    ItemUtil.applyRarity(plugin, downgradedItem, newRarity);
-                    // Результат будет пониженный предмет
-                    
-                    player.sendMessage(Component.text("⬇️ Редкость понижена до " + newRarity.name())
-                        .color(NamedTextColor.GOLD));
-                }
+            Rarity newRarity = RarityRegistry.current().previous(currentRarity);
+            if (newRarity != null) {
+                ItemStack downgradedItem = new ItemStack(item1.getType());
+                ItemUtil.applyRarity(plugin, downgradedItem, newRarity);
+                // Результат будет пониженный предмет
+                
+                player.sendMessage(Component.text("⬇️ Редкость понижена до " + newRarity.name())
+                    .color(NamedTextColor.GOLD));
             }
         }
         
         player.playSound(player.getLocation(), Sound.ENTITY_ITEM_BREAK, 1.0f, 0.5f);
     }
     
-    /**
-     * Получает пониженную редкость
-     */
-    private String getDowngradedRarity(String currentRarity) {
-        return switch (currentRarity) {
-            case "uncommon" -> "common";
-            case "rare" -> "uncommon";
-            case "epic" -> "rare";
-            case "legendary" -> "epic";
-            case "mythic" -> "legendary";
-            case "divine" -> "mythic";
-            default -> null;
-        };
-    }
-    
-    private boolean canCombineItems(ItemStack item1, ItemStack item2) {
-        // Проверяем, что материалы одинаковые
-        if (item1.getType() != item2.getType()) {
-            return false;
-        }
-        
-        // Проверяем, что редкости одинаковые
-        Rarity rarity1 = ItemUtil.getRarity(item1);
-        Rarity rarity2 = ItemUtil.getRarity(item2);
-        
-        if (rarity1 == null || rarity2 == null) {
-            return false;
-        }
-        
-        return rarity1.id().equals(rarity2.id());
-    }
-    
     private void sendUpgradeSuccess(Player player, Rarity newRarity) {
         // Звук успеха
         player.playSound(player.getLocation(), Sound.ENTITY_PLAYER_LEVELUP, 1.0f, 1.2f);
@@ -561,4 +684,20 @@ private void sendUpgradeSuccess(Player player, Rarity newRarity) {
         
         player.showTitle(title);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Посчитанное улучшение для конкретного содержимого сетки крафта
+     *
+     * @param matrix  копия сетки, для которой план действителен
+     * @param result  улучшенный предмет, выдаваемый по клику
+     * @param preview тот же предмет с меткой улучшения для слота результата
+     * @param failure невыполненное требование (null - улучшение возможно)
+     */
+    private record UpgradePlan(ItemStack[] matrix, ItemStack item1, ItemStack item2, Rarity rarity, Rarity next,
+                               ItemStack result, ItemStack preview, String failure) {
+
+        boolean matches(ItemStack[] current) {
+            return Arrays.equals(matrix, current);
+        }
+    }
+}
@@ -3,8 +3,10 @@
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.manager.CooldownRegistry;
+import org.bedepay.rareItems.metrics.PluginMetrics;
+import org.bedepay.rareItems.metrics.TraceRecorder;
 import org.bedepay.rareItems.rarity.Rarity;
-import org.bedepay.rareItems.util.ItemUtil;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
@@ -14,24 +16,17 @@
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
-import java.util.UUID;
 
 public class WeaponEffectListener implements Listener {
     private final RareItems plugin;
     private final Random random = new Random();
     private final MiniMessage miniMessage = MiniMessage.miniMessage();
-    
-    // Кулдауны для эффектов (UUID игрока -> время последнего использования)
-    private final Map<UUID, Long> effectCooldowns = new HashMap<>();
 
     public WeaponEffectListener(RareItems plugin) {
         this.plugin = plugin;
@@ -39,6 +34,15 @@ public WeaponEffectListener(RareItems plugin) {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onEntityDamageByEntity(EntityDamageByEntityEvent event) {
+        long start = plugin.getMetrics().start();
+        try {
+            processDamage(event);
+        } finally {
+            plugin.getMetrics().stop(PluginMetrics.Hook.EFFECT_DAMAGE, start);
+        }
+    }
+    
+    private void processDamage(EntityDamageByEntityEvent event) {
         if (!(event.getDamager() instanceof Player player)) {
             return;
         }
@@ -47,39 +51,51 @@ public void onEntityDamageByEntity(EntityDamageByEntityEvent event) {
             return;
         }
         
-        ItemStack weapon = player.getInventory().getItemInMainHand();
-        if (weapon.getType().isAir()) {
-            return;
-        }
-        
-        // Проверяем, есть ли у предмета редкость
-        Rarity rarity = getRarity(weapon);
+        // Проверяем, есть ли у предмета редкость (по снимку экипировки)
+        Rarity rarity = plugin.getEquipmentManager().getVerifiedHand(player).rarity(EquipmentSlot.HAND);
         if (rarity == null) {
             return;
         }
         
+        TraceRecorder tracer = plugin.getTraceRecorder();
+        long traceStart = tracer.start(player);
+        
         // Проверяем, есть ли у редкости эффекты при ударе
         if (rarity.onHitEffects().isEmpty()) {
+            tracer.record(traceStart, player, TraceRecorder.Stage.WEAPON_EFFECT, rarity,
+                    TraceRecorder.Outcome.NO_ABILITY, Double.NaN, Double.NaN);
             return;
         }
         
         // Проверяем кулдаун
-        if (isOnCooldown(player, rarity)) {
+        CooldownRegistry cooldowns = plugin.getCooldownRegistry();
+        if (cooldowns.isOnCooldown(player.getUniqueId(), CooldownRegistry.Ability.WEAPON_EFFECT)) {
+            tracer.record(traceStart, player, TraceRecorder.Stage.WEAPON_EFFECT, rarity,
+                    TraceRecorder.Outcome.ON_COOLDOWN, Double.NaN, rarity.effectChance());
             return;
         }
         
         // Проверяем шанс срабатывания
         double roll = random.nextDouble() * 100.0;
         if (roll > rarity.effectChance()) {
+            tracer.record(traceStart, player, TraceRecorder.Stage.WEAPON_EFFECT, rarity,
+                    TraceRecorder.Outcome.CHANCE_FAILED, roll, rarity.effectChance());
+            return;
+        }
+        
+        // Устанавливаем кулдаун (атомарно - повторный удар в тот же момент не сработает)
+        if (!cooldowns.tryAcquire(player.getUniqueId(), CooldownRegistry.Ability.WEAPON_EFFECT, rarity.effectCooldown())) {
+            tracer.record(traceStart, player, TraceRecorder.Stage.WEAPON_EFFECT, rarity,
+                    TraceRecorder.Outcome.ON_COOLDOWN, roll, rarity.effectChance());
             return;
         }
         
+        tracer.record(traceStart, player, TraceRecorder.Stage.WEAPON_EFFECT, rarity,
+                TraceRecorder.Outcome.TRIGGERED, roll, rarity.effectChance());
+        
         // Применяем эффекты
         applyEffects(player, target, rarity);
         
-        // Устанавливаем кулдаун
-        setCooldown(player, rarity);
-        
         // Играем эффекты
         playHitEffects(player, target, rarity);
         
@@ -87,36 +103,6 @@ public void onEntityDamageByEntity(EntityDamageByEntityEvent event) {
         notifyPlayer(player, rarity, target);
     }
     
-    private Rarity getRarity(ItemStack item) {
-        ItemMeta meta = item.getItemMeta();
-        if (meta == null) {
-            return null;
-        }
-        
-        String rarityId = meta.getPersistentDataContainer().get(
-                ItemUtil.getKey(plugin, "rarity"), 
-                PersistentDataType.STRING
-        );
-        
-        if (rarityId == null) {
-            return null;
-        }
-        
-        return plugin.getConfigManager().getRarityById(rarityId);
-    }
-    
-    private boolean isOnCooldown(Player player, Rarity rarity) {
-        UUID playerId = player.getUniqueId();
-        long currentTime = System.currentTimeMillis();
-        long lastUse = effectCooldowns.getOrDefault(playerId, 0L);
-        
-        return (currentTime - lastUse) < rarity.effectCooldown();
-    }
-    
-    private void setCooldown(Player player, Rarity rarity) {
-        effectCooldowns.put(player.getUniqueId(), System.currentTimeMillis());
-    }
-    
     private void applyEffects(Player player, LivingEntity target, Rarity rarity) {
         for (Map.Entry<PotionEffectType, Integer> entry : rarity.onHitEffects().entrySet()) {
             PotionEffectType effectType = entry.getKey();
@@ -154,14 +140,14 @@ private void playHitEffects(Player player, LivingEntity target, Rarity rarity) {
         // Звук
         Sound sound = getHitSound(rarity);
         if (sound != null) {
-            player.playSound(targetLocation, sound, 0.7f, getHitPitch(rarity));
-            target.getWorld().playSound(targetLocation, sound, 0.7f, getHitPitch(rarity));
+            // Атакующий рядом с целью и тоже услышит звук
+            plugin.getEffectRenderer().sound(targetLocation, sound, 0.7f, getHitPitch(rarity));
         }
         
         // Частицы
         Particle particle = getHitParticle(rarity);
         if (particle != null) {
-            target.getWorld().spawnParticle(particle, targetLocation, 15, 0.5, 0.5, 0.5, 0.1);
+            plugin.getEffectRenderer().burst(player, targetLocation, particle, 15, 0.5, 0.5, 0.5, 0.1);
         }
     }
     
@@ -218,14 +204,4 @@ private void notifyPlayer(Player player, Rarity rarity, LivingEntity target) {
         // Отправляем сообщение только игроку (не спамим чат)
         player.sendActionBar(component);
     }
-    
-    // Очистка старых кулдаунов для экономии памяти
-    public void cleanupCooldowns() {
-        long currentTime = System.currentTimeMillis();
-        long maxCooldown = 300000; // 5 минут
-        
-        effectCooldowns.entrySet().removeIf(entry -> 
-            (currentTime - entry.getValue()) > maxCooldown
-        );
-    }
 } 
\ No newline at end of file
@@ -0,0 +1,211 @@
+package org.bedepay.rareItems.manager;
+
+import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.metrics.PluginMetrics;
+import org.bedepay.rareItems.rarity.Ability;
+import org.bedepay.rareItems.rarity.AbilityTable;
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.util.MaterialTypeChecker;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Постоянные эффекты от ношения редкой брони (способности Aura из AbilityTable).
+ * <p>
+ * Игроки распределены по SLOTS корзинам, и каждый тик обрабатывается только одна корзина,
+ * поэтому нагрузка ровная, а не всплеск раз в 5 секунд. Эффект обновляется только когда
+ * его остаток меньше порога, а игрок с неизменной экипировкой пропускается до срока обновления.
+ */
+public class ArmorEffectScheduler implements Listener {
+
+    // Каждый игрок обрабатывается раз в SLOTS тиков
+    private static final int SLOTS = 40;
+
+    // Длительность накладываемых эффектов и порог обновления (больше периода обхода)
+    private static final int EFFECT_DURATION = AbilityTable.AURA_DURATION;
+    private static final int REFRESH_THRESHOLD = SLOTS + 20;
+
+    // Слоты, броня в которых может давать постоянные эффекты
+    private static final EquipmentSlot[] ARMOR_SLOTS = {
+            EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET
+    };
+
+    private final RareItems plugin;
+
+    @SuppressWarnings("unchecked")
+    private final List<PlayerState>[] buckets = new List[SLOTS];
+    private final Map<UUID, PlayerState> states = new HashMap<>();
+
+    private BukkitTask task;
+    private int cursor;
+
+    public ArmorEffectScheduler(RareItems plugin) {
+        this.plugin = plugin;
+        for (int i = 0; i < SLOTS; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+    }
+
+    public void start() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            track(player);
+        }
+        if (task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Принудительно обновляет эффекты при следующем обходе (например, после перезагрузки конфига)
+     */
+    public void invalidateAll() {
+        for (PlayerState state : states.values()) {
+            state.version = -1;
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        track(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        PlayerState state = states.remove(event.getPlayer().getUniqueId());
+        if (state != null) {
+            buckets[state.slot].remove(state);
+        }
+    }
+
+    private void track(Player player) {
+        if (states.containsKey(player.getUniqueId())) {
+            return;
+        }
+
+        // Кладем игрока в наименее заполненную корзину
+        int slot = 0;
+        for (int i = 1; i < SLOTS; i++) {
+            if (buckets[i].size() < buckets[slot].size()) {
+                slot = i;
+            }
+        }
+
+        PlayerState state = new PlayerState(player, slot);
+        buckets[slot].add(state);
+        states.put(player.getUniqueId(), state);
+    }
+
+    private void tick() {
+        long start = plugin.getMetrics().start();
+        try {
+            processBucket();
+        } finally {
+            plugin.getMetrics().stop(PluginMetrics.Hook.ARMOR_TICK, start);
+        }
+    }
+
+    private void processBucket() {
+        List<PlayerState> bucket = buckets[cursor];
+        cursor = (cursor + 1) % SLOTS;
+        if (bucket.isEmpty()) {
+            return;
+        }
+
+        int now = Bukkit.getCurrentTick();
+        EquipmentManager equipmentManager = plugin.getEquipmentManager();
+
+        for (PlayerState state : bucket) {
+            Player player = state.player;
+            if (!player.isOnline() || player.isDead()) {
+                continue;
+            }
+
+            EquipmentSnapshot equipment = equipmentManager.get(player);
+
+            // Экипировка не менялась и эффекты еще не подходят к концу - пропускаем
+            if (equipment.version() == state.version && now < state.nextRefresh) {
+                continue;
+            }
+
+            applyEffects(player, equipment);
+            state.version = equipment.version();
+            state.nextRefresh = now + EFFECT_DURATION - REFRESH_THRESHOLD;
+        }
+    }
+
+    private void applyEffects(Player player, EquipmentSnapshot equipment) {
+        AbilityTable abilities = plugin.getConfigManager().getAbilityTable();
+
+        for (EquipmentSlot slot : ARMOR_SLOTS) {
+            Rarity rarity = equipment.rarity(slot);
+            if (rarity == null) {
+                continue;
+            }
+
+            Ability.Aura aura = abilities.aura(rarity, MaterialTypeChecker.family(equipment.type(slot)));
+            if (aura == null) {
+                continue;
+            }
+
+            refresh(player, aura.effects());
+
+            // Например, защита от слепоты для эпического шлема
+            for (PotionEffectType type : aura.cleanse()) {
+                if (player.hasPotionEffect(type)) {
+                    player.removePotionEffect(type);
+                }
+            }
+        }
+    }
+
+    /**
+     * Накладывает только те эффекты, которые отсутствуют, слабее нужного или скоро закончатся
+     */
+    private void refresh(Player player, PotionEffect[] effects) {
+        for (PotionEffect effect : effects) {
+            PotionEffect current = player.getPotionEffect(effect.getType());
+            if (current == null
+                    || current.getAmplifier() < effect.getAmplifier()
+                    || (current.getAmplifier() == effect.getAmplifier() && current.getDuration() < REFRESH_THRESHOLD)) {
+                player.addPotionEffect(effect);
+            }
+        }
+    }
+
+    /**
+     * Состояние игрока в планировщике
+     */
+    private static final class PlayerState {
+        final Player player;
+        final int slot;
+        int version = -1;
+        int nextRefresh;
+
+        PlayerState(Player player, int slot) {
+            this.player = player;
+            this.slot = slot;
+        }
+    }
+}
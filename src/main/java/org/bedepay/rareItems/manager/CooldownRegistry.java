@@ -0,0 +1,216 @@
+package org.bedepay.rareItems.manager;
+
+import org.bedepay.rareItems.RareItems;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Общий реестр кулдаунов способностей.
+ * <p>
+ * Для каждого игрока хранится массив сроков окончания (по слоту на способность),
+ * время берется из монотонного System.nanoTime(), а проверка и установка делаются
+ * атомарно через CAS, поэтому методы безопасны для вызова из любых потоков.
+ * Истекшие записи удаляет колесо таймеров, записи игроков - событие выхода.
+ */
+public class CooldownRegistry implements Listener {
+
+    /**
+     * Способности с собственным кулдауном
+     */
+    public enum Ability {
+        WEAPON_EFFECT,
+        WEAPON_ABILITY,
+        TELEPORT
+    }
+
+    private static final int ABILITY_COUNT = Ability.values().length;
+
+    // Колесо: 64 ячейки по 1 секунде, более дальние сроки проходят несколько оборотов
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final long WHEEL_RESOLUTION = TimeUnit.SECONDS.toNanos(1);
+
+    private final RareItems plugin;
+    private final Map<UUID, AtomicLongArray> cooldowns = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private final Queue<UUID>[] wheel = new Queue[WHEEL_SIZE];
+    private final long origin = System.nanoTime();
+    private volatile long sweptSlot;
+    private BukkitTask sweeper;
+
+    public CooldownRegistry(RareItems plugin) {
+        this.plugin = plugin;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public void start() {
+        if (sweeper == null) {
+            sweeper = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::sweep, 20L, 20L);
+        }
+    }
+
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.cancel();
+            sweeper = null;
+        }
+        cooldowns.clear();
+    }
+
+    /**
+     * Проверяет, действует ли кулдаун способности
+     */
+    public boolean isOnCooldown(UUID playerId, Ability ability) {
+        AtomicLongArray slots = cooldowns.get(playerId);
+        if (slots != null && System.nanoTime() - slots.get(ability.ordinal()) < 0) {
+            plugin.getMetrics().cooldownRejected(ability);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Запускает кулдаун способности (перезаписывает текущий)
+     */
+    public void set(UUID playerId, Ability ability, long cooldownMillis) {
+        long expiry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+        slots(playerId).set(ability.ordinal(), expiry);
+        schedule(playerId, expiry);
+    }
+
+    /**
+     * Атомарно проверяет и запускает кулдаун
+     *
+     * @return true если кулдаун не действовал и теперь запущен
+     */
+    public boolean tryAcquire(UUID playerId, Ability ability, long cooldownMillis) {
+        AtomicLongArray slots = slots(playerId);
+        int index = ability.ordinal();
+        long cooldown = TimeUnit.MILLISECONDS.toNanos(cooldownMillis);
+
+        while (true) {
+            long current = slots.get(index);
+            long now = System.nanoTime();
+            if (now - current < 0) {
+                plugin.getMetrics().cooldownRejected(ability);
+                return false;
+            }
+            if (slots.compareAndSet(index, current, now + cooldown)) {
+                schedule(playerId, now + cooldown);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает все кулдауны игрока
+     */
+    public void clear(UUID playerId) {
+        cooldowns.remove(playerId);
+    }
+
+    /**
+     * Количество игроков с записями (для отладки)
+     */
+    public int size() {
+        return cooldowns.size();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        clear(event.getPlayer().getUniqueId());
+    }
+
+    private AtomicLongArray slots(UUID playerId) {
+        return cooldowns.computeIfAbsent(playerId, id -> {
+            // Начальное значение - уже истекший срок
+            AtomicLongArray slots = new AtomicLongArray(ABILITY_COUNT);
+            long expired = System.nanoTime() - 1;
+            for (int i = 0; i < ABILITY_COUNT; i++) {
+                slots.set(i, expired);
+            }
+            return slots;
+        });
+    }
+
+    private void schedule(UUID playerId, long expiry) {
+        long slot = Math.max(slotOf(expiry) + 1, sweptSlot + 1);
+        wheel[(int) (slot & WHEEL_MASK)].add(playerId);
+    }
+
+    private long slotOf(long nanoTime) {
+        return (nanoTime - origin) / WHEEL_RESOLUTION;
+    }
+
+    /**
+     * Проходит ячейки колеса до текущего момента и удаляет игроков, у которых истекли все кулдауны
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        long target = slotOf(now);
+
+        // После долгой паузы достаточно одного полного оборота
+        long from = Math.max(sweptSlot + 1, target - WHEEL_SIZE + 1);
+        for (long slot = from; slot <= target; slot++) {
+            Queue<UUID> bucket = wheel[(int) (slot & WHEEL_MASK)];
+            int pending = bucket.size();
+            for (int i = 0; i < pending; i++) {
+                UUID playerId = bucket.poll();
+                if (playerId == null) {
+                    break;
+                }
+                expire(playerId, now);
+            }
+        }
+        sweptSlot = target;
+    }
+
+    private void expire(UUID playerId, long now) {
+        AtomicLongArray slots = cooldowns.get(playerId);
+        if (slots == null) {
+            return;
+        }
+
+        long latest = Long.MIN_VALUE;
+        boolean active = false;
+        for (int i = 0; i < ABILITY_COUNT; i++) {
+            long expiry = slots.get(i);
+            if (now - expiry < 0) {
+                active = true;
+                if (latest == Long.MIN_VALUE || expiry - latest > 0) {
+                    latest = expiry;
+                }
+            }
+        }
+
+        if (active) {
+            // Кулдаун еще идет (например, длиннее оборота колеса) - переносим
+            schedule(playerId, latest);
+        } else if (cooldowns.remove(playerId, slots)) {
+            // Кулдаун мог быть запущен между проверкой и удалением - возвращаем запись
+            for (int i = 0; i < ABILITY_COUNT; i++) {
+                long expiry = slots.get(i);
+                if (System.nanoTime() - expiry < 0) {
+                    cooldowns.putIfAbsent(playerId, slots);
+                    schedule(playerId, expiry);
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.bedepay.rareItems.manager;
+
+import com.destroystokyo.paper.ClientOption;
+import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.rarity.Ability;
+import org.bedepay.rareItems.util.EffectShape;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Отрисовка частиц и звуков эффектов.
+ * <p>
+ * Вместо рассылки всему миру эффект отправляется только игрокам в пределах viewDistance,
+ * с учетом их настройки частиц (MINIMAL - без декоративных частиц, DECREASED - вдвое меньше).
+ * Все точки формы отправляются одному зрителю подряд, а общее число частиц за тик
+ * ограничено tickBudget: при переполнении оставшиеся эффекты этого тика пропускаются.
+ * Вызывается только из основного потока.
+ */
+public class EffectRenderer {
+
+    private final RareItems plugin;
+
+    // Переиспользуемый список зрителей (только основной поток)
+    private final List<Player> viewers = new ArrayList<>();
+    private final List<ClientOption.ParticleVisibility> visibility = new ArrayList<>();
+
+    private double viewDistance;
+    private int tickBudget;
+
+    private int budgetTick = -1;
+    private int used;
+    private int dropped;
+
+    public EffectRenderer(RareItems plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+
+    /**
+     * Перечитывает дальность и бюджет из конфига
+     */
+    public void reload() {
+        viewDistance = plugin.getConfigManager().getEffectViewDistance();
+        tickBudget = plugin.getConfigManager().getEffectTickBudget();
+    }
+
+    /**
+     * Рисует форму: в каждой точке count частиц с разбросом spread
+     *
+     * @param owner игрок, вызвавший эффект - получает его первым (может быть null)
+     */
+    public void shape(Player owner, Location origin, EffectShape shape, Particle particle, int count, double spread) {
+        int found = collectViewers(owner, origin, viewDistance);
+        double ox = origin.getX();
+        double oy = origin.getY();
+        double oz = origin.getZ();
+
+        for (int v = 0; v < found; v++) {
+            int stride = visibility.get(v) == ClientOption.ParticleVisibility.DECREASED ? 2 : 1;
+            int points = (shape.size() + stride - 1) / stride;
+            if (!take(points * count)) {
+                break;
+            }
+
+            Player viewer = viewers.get(v);
+            for (int i = 0; i < shape.size(); i += stride) {
+                viewer.spawnParticle(particle, ox + shape.x(i), oy + shape.y(i), oz + shape.z(i),
+                        count, spread, spread, spread, 0);
+            }
+        }
+        viewers.clear();
+    }
+
+    /**
+     * Облако частиц в одной точке
+     */
+    public void burst(Player owner, Location origin, Particle particle, int count,
+                      double dx, double dy, double dz, double speed) {
+        int found = collectViewers(owner, origin, viewDistance);
+
+        for (int v = 0; v < found; v++) {
+            int amount = visibility.get(v) == ClientOption.ParticleVisibility.DECREASED
+                    ? Math.max(1, count / 2)
+                    : count;
+            if (!take(amount)) {
+                break;
+            }
+            viewers.get(v).spawnParticle(particle, origin.getX(), origin.getY(), origin.getZ(),
+                    amount, dx, dy, dz, speed);
+        }
+        viewers.clear();
+    }
+
+    public void burst(Player owner, Location origin, Ability.Burst burst) {
+        burst(owner, origin, burst.particle(), burst.count(), burst.dx(), burst.dy(), burst.dz(), 0);
+    }
+
+    /**
+     * Звук для игроков поблизости (не дальше, чем его слышно в ванилле)
+     */
+    public void sound(Location origin, Sound sound, float volume, float pitch) {
+        World world = origin.getWorld();
+        double range = Math.min(viewDistance, 16.0 * Math.max(1.0f, volume));
+        double rangeSquared = range * range;
+
+        for (Player viewer : world.getPlayers()) {
+            if (viewer.getLocation().distanceSquared(origin) <= rangeSquared) {
+                viewer.playSound(origin, sound, volume, pitch);
+            }
+        }
+    }
+
+    /**
+     * Частиц отправлено за текущий тик
+     */
+    public int usedThisTick() {
+        return budgetTick == Bukkit.getCurrentTick() ? used : 0;
+    }
+
+    /**
+     * Частиц пропущено из-за бюджета за текущий тик
+     */
+    public int droppedThisTick() {
+        return budgetTick == Bukkit.getCurrentTick() ? dropped : 0;
+    }
+
+    /**
+     * Собирает зрителей в радиусе, владелец эффекта - первым
+     */
+    private int collectViewers(Player owner, Location origin, double range) {
+        viewers.clear();
+        visibility.clear();
+        World world = origin.getWorld();
+        double rangeSquared = range * range;
+
+        if (owner != null && owner.getWorld() == world) {
+            addViewer(owner, origin, rangeSquared);
+        }
+        for (Player viewer : world.getPlayers()) {
+            if (viewer != owner) {
+                addViewer(viewer, origin, rangeSquared);
+            }
+        }
+        return viewers.size();
+    }
+
+    private void addViewer(Player viewer, Location origin, double rangeSquared) {
+        if (viewer.getLocation().distanceSquared(origin) > rangeSquared) {
+            return;
+        }
+        ClientOption.ParticleVisibility setting = viewer.getClientOption(ClientOption.PARTICLE_VISIBILITY);
+        if (setting == ClientOption.ParticleVisibility.MINIMAL) {
+            return;
+        }
+        viewers.add(viewer);
+        visibility.add(setting);
+    }
+
+    /**
+     * Списывает частицы из бюджета текущего тика
+     */
+    private boolean take(int cost) {
+        int tick = Bukkit.getCurrentTick();
+        if (tick != budgetTick) {
+            budgetTick = tick;
+            used = 0;
+            dropped = 0;
+        }
+        if (used + cost > tickBudget) {
+            dropped += cost;
+            return false;
+        }
+        used += cost;
+        return true;
+    }
+}
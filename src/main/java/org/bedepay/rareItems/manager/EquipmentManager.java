@@ -0,0 +1,188 @@
+package org.bedepay.rareItems.manager;
+
+import com.destroystokyo.paper.event.player.PlayerArmorChangeEvent;
+import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.metrics.PluginMetrics;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerItemBreakEvent;
+import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранит снимки экипировки игроков и обновляет их только по событиям изменения инвентаря.
+ * Вместо опроса брони на каждом PlayerMoveEvent обработчики читают готовый снимок.
+ */
+public class EquipmentManager implements Listener {
+
+    private final RareItems plugin;
+    private final Map<UUID, EquipmentSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    // Игроки, для которых уже запланировано обновление на следующий тик
+    private final Set<UUID> pendingRefresh = ConcurrentHashMap.newKeySet();
+
+    public EquipmentManager(RareItems plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Получает снимок экипировки игрока (создает его при первом обращении)
+     */
+    public EquipmentSnapshot get(Player player) {
+        EquipmentSnapshot snapshot = snapshots.get(player.getUniqueId());
+        return snapshot != null ? snapshot : refresh(player);
+    }
+
+    /**
+     * Получает снимок, сверяя материал в основной руке.
+     * Предмет в руке может смениться без события (например, выдан другим плагином),
+     * поэтому для оружия дешевая проверка типа защищает от устаревших данных.
+     */
+    public EquipmentSnapshot getVerifiedHand(Player player) {
+        EquipmentSnapshot snapshot = get(player);
+        ItemStack hand = player.getInventory().getItemInMainHand();
+        Material expected = snapshot.type(EquipmentSlot.HAND);
+        Material actual = hand.getType().isAir() ? null : hand.getType();
+        plugin.getMetrics().cache(PluginMetrics.Cache.EQUIPMENT_HAND, expected == actual);
+        return expected == actual ? snapshot : refresh(player);
+    }
+
+    /**
+     * Немедленно пересобирает снимок экипировки игрока
+     */
+    public EquipmentSnapshot refresh(Player player) {
+        EquipmentSnapshot previous = snapshots.getOrDefault(player.getUniqueId(), EquipmentSnapshot.EMPTY);
+        EquipmentSnapshot snapshot = EquipmentSnapshot.capture(player.getInventory(), previous, plugin.getItemRefresher());
+        snapshots.put(player.getUniqueId(), snapshot);
+        
+        // Предметы, не уложившиеся в бюджет перерисовки, - на следующем тике
+        if (plugin.getItemRefresher().takeDeferred()) {
+            refreshLater(player);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Пересобирает снимки всех игроков онлайн (например, после перезагрузки конфига)
+     */
+    public void refreshAll() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            refresh(player);
+        }
+    }
+
+    /**
+     * Планирует обновление на следующий тик, когда инвентарь уже изменен сервером.
+     * Несколько событий за тик приводят к одному обновлению.
+     */
+    private void refreshLater(HumanEntity entity) {
+        if (!(entity instanceof Player player)) {
+            return;
+        }
+
+        UUID playerId = player.getUniqueId();
+        if (!pendingRefresh.add(playerId)) {
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            pendingRefresh.remove(playerId);
+            if (player.isOnline()) {
+                refresh(player);
+            }
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        snapshots.remove(event.getPlayer().getUniqueId());
+        pendingRefresh.remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onArmorChange(PlayerArmorChangeEvent event) {
+        // Событие вызывается после фактической смены брони
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHeldItemChange(PlayerItemHeldEvent event) {
+        // Слот переключается после события, поэтому руку берем из нового слота сразу:
+        // удар в этом же тике иначе прочитал бы редкость прежнего оружия того же материала
+        Player player = event.getPlayer();
+        EquipmentSnapshot previous = snapshots.getOrDefault(player.getUniqueId(), EquipmentSnapshot.EMPTY);
+        snapshots.put(player.getUniqueId(),
+                previous.withHand(player.getInventory(), event.getNewSlot(), plugin.getItemRefresher()));
+
+        if (plugin.getItemRefresher().takeDeferred()) {
+            refreshLater(player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        refreshLater(event.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        refreshLater(event.getWhoClicked());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSwapHands(PlayerSwapHandItemsEvent event) {
+        refreshLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDrop(PlayerDropItemEvent event) {
+        refreshLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPickup(EntityPickupItemEvent event) {
+        if (event.getEntity() instanceof Player player) {
+            refreshLater(player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onItemBreak(PlayerItemBreakEvent event) {
+        refreshLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onDeath(PlayerDeathEvent event) {
+        refreshLater(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent event) {
+        refreshLater(event.getPlayer());
+    }
+}
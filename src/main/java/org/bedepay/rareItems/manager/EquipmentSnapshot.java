@@ -0,0 +1,115 @@
+package org.bedepay.rareItems.manager;
+
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityResolver;
+import org.bukkit.Material;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+/**
+ * Неизменяемый снимок экипировки игрока: материал и редкость в каждом слоте брони и рук.
+ * Горячие обработчики читают готовые значения вместо обращения к ItemMeta.
+ */
+public final class EquipmentSnapshot {
+
+    private static final EquipmentSlot[] SLOTS = EquipmentSlot.values();
+
+    public static final EquipmentSnapshot EMPTY =
+            new EquipmentSnapshot(new Material[SLOTS.length], new Rarity[SLOTS.length], 0);
+
+    private final Material[] types;
+    private final Rarity[] rarities;
+    private final int version;
+
+    private EquipmentSnapshot(Material[] types, Rarity[] rarities, int version) {
+        this.types = types;
+        this.rarities = rarities;
+        this.version = version;
+    }
+
+    /**
+     * Создает снимок по текущему инвентарю. Версия увеличивается только если что-то изменилось.
+     * Устаревшие и старого формата предметы по пути перерисовываются.
+     */
+    static EquipmentSnapshot capture(PlayerInventory inventory, EquipmentSnapshot previous, ItemRefresher refresher) {
+        Material[] types = new Material[SLOTS.length];
+        Rarity[] rarities = new Rarity[SLOTS.length];
+
+        for (EquipmentSlot slot : SLOTS) {
+            ItemStack item = inventory.getItem(slot);
+            if (item == null || item.getType() == Material.AIR) {
+                continue;
+            }
+            types[slot.ordinal()] = item.getType();
+            if (refresher.touch(item) == ItemRefresher.Result.CHANGED) {
+                inventory.setItem(slot, item);
+            }
+            rarities[slot.ordinal()] = RarityResolver.resolve(item);
+        }
+
+        return previous.next(types, rarities);
+    }
+
+    /**
+     * Создает снимок с новым предметом в основной руке, остальные слоты берутся из текущего.
+     * Нужен при смене слота хотбара: инвентарь еще не переключен, а удар в том же тике
+     * должен увидеть редкость нового оружия, даже если материал тот же.
+     */
+    EquipmentSnapshot withHand(PlayerInventory inventory, int heldSlot, ItemRefresher refresher) {
+        Material[] newTypes = types.clone();
+        Rarity[] newRarities = rarities.clone();
+        int hand = EquipmentSlot.HAND.ordinal();
+        newTypes[hand] = null;
+        newRarities[hand] = null;
+
+        ItemStack item = inventory.getItem(heldSlot);
+        if (item != null && item.getType() != Material.AIR) {
+            newTypes[hand] = item.getType();
+            if (refresher.touch(item) == ItemRefresher.Result.CHANGED) {
+                inventory.setItem(heldSlot, item);
+            }
+            newRarities[hand] = RarityResolver.resolve(item);
+        }
+
+        return next(newTypes, newRarities);
+    }
+
+    private EquipmentSnapshot next(Material[] newTypes, Rarity[] newRarities) {
+        if (sameAs(newTypes, newRarities)) {
+            return this;
+        }
+        return new EquipmentSnapshot(newTypes, newRarities, version + 1);
+    }
+    
+    private boolean sameAs(Material[] otherTypes, Rarity[] otherRarities) {
+        for (int i = 0; i < SLOTS.length; i++) {
+            // Редкости сравниваем по ссылке: после перезагрузки конфига это уже другие объекты
+            if (types[i] != otherTypes[i] || rarities[i] != otherRarities[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Получает редкость предмета в слоте (null если предмет обычный или слот пуст)
+     */
+    public Rarity rarity(EquipmentSlot slot) {
+        return rarities[slot.ordinal()];
+    }
+
+    /**
+     * Получает материал предмета в слоте (null если слот пуст)
+     */
+    public Material type(EquipmentSlot slot) {
+        return types[slot.ordinal()];
+    }
+
+    /**
+     * Номер версии - меняется при каждом изменении экипировки
+     */
+    public int version() {
+        return version;
+    }
+}
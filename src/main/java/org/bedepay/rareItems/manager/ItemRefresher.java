@@ -0,0 +1,126 @@
+package org.bedepay.rareItems.manager;
+
+import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.config.Settings;
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityCodec;
+import org.bedepay.rareItems.rarity.RarityResolver;
+import org.bedepay.rareItems.util.ItemUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * Ленивая перерисовка предметов после изменения редкостей в конфиге.
+ * <p>
+ * Каждый предмет хранит отпечаток определения редкости, по которому он оформлен.
+ * Устаревший предмет перерисовывается, только когда его надевают, берут в руку
+ * или видят в открытом инвентаре - без обхода всех предметов мира. За тик
+ * перерисовывается не больше itemRefresh.perTick предметов, остальные ждут следующего касания.
+ * У предметов старого формата NBT здесь же переписывается только запись, оформление не трогается.
+ */
+public class ItemRefresher implements Listener {
+
+    /**
+     * Итог касания предмета
+     */
+    public enum Result {
+        UNCHANGED,
+        CHANGED,
+        // Предмет устарел, но бюджет тика исчерпан
+        DEFERRED
+    }
+
+    private final RareItems plugin;
+
+    // Бюджет текущего тика (только главный поток)
+    private int tick = -1;
+    private int used;
+    private boolean deferred;
+
+    public ItemRefresher(RareItems plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Перерисовывает предмет на месте, если он устарел или записан в старом формате.
+     * Вызывающий сам возвращает измененный стак в инвентарь.
+     */
+    public Result touch(ItemStack item) {
+        RarityCodec.ItemData data = RarityResolver.getData(item);
+        if (data == null || data.hasFlag(RarityCodec.FLAG_UPGRADE_PREVIEW)) {
+            return Result.UNCHANGED;
+        }
+
+        Settings.ItemRefresh settings = plugin.getConfigManager().getSettings().itemRefresh();
+        boolean legacy = data.hasFlag(RarityCodec.FLAG_LEGACY);
+        Rarity rarity = RarityResolver.byId(data.rarityId());
+        boolean stale = !legacy && settings.enabled() && rarity != null && ItemUtil.isStale(item.getType(), data, rarity);
+        if (!stale && !legacy) {
+            return Result.UNCHANGED;
+        }
+
+        if (!acquire(settings.perTick())) {
+            deferred = true;
+            return Result.DEFERRED;
+        }
+
+        if (legacy) {
+            // Только новый формат NBT: название и атрибуты старого предмета могли поменять вручную
+            return RarityCodec.migrate(item) ? Result.CHANGED : Result.UNCHANGED;
+        }
+
+        ItemMeta meta = item.getItemMeta();
+        ItemUtil.render(plugin, item.getType(), meta, rarity);
+        item.setItemMeta(meta);
+        RarityResolver.invalidateCache();
+
+        if (plugin.getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[RareItems Debug] Перерисован предмет " + item.getType() + " (" + rarity.id() + ")");
+        }
+        return Result.CHANGED;
+    }
+
+    /**
+     * Были ли с прошлого вызова предметы, отложенные из-за бюджета (флаг сбрасывается)
+     */
+    public boolean takeDeferred() {
+        boolean result = deferred;
+        deferred = false;
+        return result;
+    }
+
+    private boolean acquire(int perTick) {
+        int currentTick = Bukkit.getCurrentTick();
+        if (currentTick != tick) {
+            tick = currentTick;
+            used = 0;
+        }
+        if (used >= perTick) {
+            return false;
+        }
+        used++;
+        return true;
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onInventoryOpen(InventoryOpenEvent event) {
+        Inventory inventory = event.getInventory();
+        ItemStack[] contents = inventory.getContents();
+        for (int slot = 0; slot < contents.length; slot++) {
+            Result result = touch(contents[slot]);
+            if (result == Result.CHANGED) {
+                inventory.setItem(slot, contents[slot]);
+            } else if (result == Result.DEFERRED) {
+                // Остальное - при следующем открытии
+                deferred = false;
+                return;
+            }
+        }
+    }
+}
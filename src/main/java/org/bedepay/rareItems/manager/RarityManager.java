@@ -7,20 +7,12 @@
 import org.bedepay.rareItems.RareItems;
 import org.bedepay.rareItems.config.ConfigManager;
 import org.bedepay.rareItems.rarity.Rarity;
-import org.bedepay.rareItems.util.ItemUtil;
+import org.bedepay.rareItems.rarity.RarityRegistry;
+import org.bedepay.rareItems.rarity.RarityResolver;
 import org.bedepay.rareItems.util.MaterialTypeChecker;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataType;
-import org.bukkit.scheduler.BukkitTask;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Централизованный менеджер для управления редкостями
@@ -36,41 +28,28 @@ public static final class Constants {
         public static final int ARMOR_CHECK_INTERVAL = 100; // 5 секунд в тиках
     }
     
-    // Кэши для производительности
-    private final Map<String, Rarity> rarityCache = new ConcurrentHashMap<>();
-    private final Map<String, Double> rarityProbabilities = new HashMap<>();
-    
     private final RareItems plugin;
     private final ConfigManager configManager;
-    private final MaterialTypeChecker materialTypeChecker;
-    private final MiniMessage miniMessage = MiniMessage.miniMessage();
+    private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
     
     public RarityManager(RareItems plugin, ConfigManager configManager) {
         this.plugin = plugin;
         this.configManager = configManager;
-        this.materialTypeChecker = new MaterialTypeChecker(plugin);
         this.initializeCache();
     }
     
     /**
-     * Инициализирует кэши при загрузке
+     * Сообщает о загруженных редкостях (сами данные живут в снимке RarityRegistry)
      */
     private void initializeCache() {
-        // Кэшируем все редкости
-        rarityCache.clear();
-        for (Rarity rarity : configManager.getRarities()) {
-            rarityCache.put(rarity.id(), rarity);
-            rarityProbabilities.put(rarity.id(), configManager.getCraftChance(rarity.id()));
-        }
-        
-        plugin.getLogger().info("Кэш редкостей инициализирован: " + rarityCache.size() + " редкостей");
+        plugin.getLogger().info("Кэш редкостей инициализирован: " + RarityRegistry.current().count() + " редкостей");
     }
     
     /**
      * Проверяет, является ли материал оружием или броней (используя современный Paper API)
      */
     public boolean isWeaponOrArmor(Material material) {
-        return materialTypeChecker.isWeaponOrArmor(material);
+        return MaterialTypeChecker.isWeaponOrArmor(material);
     }
 
     
@@ -78,68 +57,42 @@ public boolean isWeaponOrArmor(Material material) {
      * Проверяет, является ли материал оружием (используя современный Paper API)
      */
     public boolean isWeapon(Material material) {
-        return materialTypeChecker.isWeapon(material);
+        return MaterialTypeChecker.isWeapon(material);
     }
     
     /**
      * Проверяет, является ли материал броней (используя современный Paper API)
      */
     public boolean isArmor(Material material) {
-        return materialTypeChecker.isArmor(material);
+        return MaterialTypeChecker.isArmor(material);
     }
     
     /**
      * Получает редкость по ID с кэшированием
      */
     public Rarity getRarityById(String id) {
-        return rarityCache.get(id);
+        return RarityResolver.byId(id);
     }
     
     /**
      * Получает редкость предмета (улучшенная версия без статических вызовов)
      */
     public Rarity getRarity(ItemStack item) {
-        if (item == null || item.getType() == Material.AIR) {
-            return null;
-        }
-        
-        ItemMeta meta = item.getItemMeta();
-        if (meta == null) {
-            return null;
-        }
-        
-        String rarityId = meta.getPersistentDataContainer().get(
-                ItemUtil.getKey(plugin, "rarity"),
-                PersistentDataType.STRING
-        );
-        
-        return rarityId != null ? getRarityById(rarityId) : null;
+        return RarityResolver.resolve(item);
     }
     
     /**
      * Проверяет, имеет ли предмет редкость от нашего плагина
      */
     public boolean hasRarity(ItemStack item) {
-        if (item == null || item.getType() == Material.AIR) {
-            return false;
-        }
-        
-        ItemMeta meta = item.getItemMeta();
-        if (meta == null) {
-            return false;
-        }
-        
-        return meta.getPersistentDataContainer().has(
-                ItemUtil.getKey(plugin, "rarity"), 
-                PersistentDataType.STRING
-        );
+        return RarityResolver.hasRarityTag(item);
     }
     
     /**
      * Получает шанс крафта редкости
      */
     public double getCraftChance(String rarityId) {
-        return rarityProbabilities.getOrDefault(rarityId, 0.0);
+        return RarityRegistry.current().craftChance(rarityId);
     }
     
     /**
@@ -147,7 +100,6 @@ public double getCraftChance(String rarityId) {
      */
     public void reloadCache() {
         initializeCache();
-        MaterialTypeChecker.clearCache();
         plugin.getLogger().info("Кэш RarityManager перезагружен");
     }
     
@@ -155,27 +107,27 @@ public void reloadCache() {
      * Получает информацию о материале для отладки
      */
     public String getMaterialInfo(Material material) {
-        return materialTypeChecker.getMaterialInfo(material);
+        return MaterialTypeChecker.getMaterialInfo(material);
     }
     
     /**
      * Проверяет, является ли редкость очень редкой
      */
     public boolean isVeryRare(String rarityId) {
-        return Set.of("legendary", "mythic", "divine", "celestial").contains(rarityId);
+        return RarityRegistry.current().isVeryRare(rarityId);
     }
     
     /**
      * Проверяет, является ли редкость крайне редкой
      */
     public boolean isExtremelyRare(String rarityId) {
-        return Set.of("divine", "celestial").contains(rarityId);
+        return RarityRegistry.current().isExtremelyRare(rarityId);
     }
     
     /**
      * Создает красивое сообщение с градиентом для редкости
      */
-    public Component createRarityMessage(Rarity rarity, String message) {
+    public static Component createRarityMessage(Rarity rarity, String message) {
         String styledMessage = switch (rarity.id()) {
             case "celestial" -> "<gradient:#ff6b6b:#4ecdc4>✦✦✦ " + message + " ✦✦✦</gradient>";
             case "divine" -> "<gradient:#a8edea:#fed6e3>✦✦ " + message + " ✦✦</gradient>";
@@ -187,7 +139,7 @@ public Component createRarityMessage(Rarity rarity, String message) {
             default -> "<color:" + rarity.color().asHexString() + ">" + message + "</color>";
         };
         
-        return miniMessage.deserialize(styledMessage);
+        return MINI_MESSAGE.deserialize(styledMessage);
     }
 
     
@@ -0,0 +1,307 @@
+package org.bedepay.rareItems.manager;
+
+import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.util.LongLongMap;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Временные блоки способностей (лед от ботинок, обсидиан на лаве).
+ * <p>
+ * Вместо отдельной задачи планировщика на каждый блок все восстановления хранятся
+ * в одной очереди по времени: ключ - упакованные координаты блока, значение - срок и материалы.
+ * Повторное замораживание блока лишь продлевает срок. За тик восстанавливается
+ * ограниченное число блоков, а при выгрузке чанка или плагина - все блоки сразу.
+ */
+public class TemporaryBlockManager implements Listener {
+
+    // Максимум восстановлений за тик, остальные переносятся на следующий
+    private static final int RESTORES_PER_TICK = 256;
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private final RareItems plugin;
+    private final Map<UUID, WorldBlocks> worlds = new HashMap<>();
+    private BukkitTask task;
+
+    public TemporaryBlockManager(RareItems plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        if (task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Временно заменяет блок. Если блок уже временный - продлевает срок,
+     * а если успел вернуться к исходному до срока - заменяет снова.
+     *
+     * @return true если блок заменен или срок продлен
+     */
+    public boolean place(Block block, Material original, Material temporary, long durationTicks) {
+        WorldBlocks blocks = worlds.computeIfAbsent(block.getWorld().getUID(), id -> new WorldBlocks());
+        long key = pack(block.getX(), block.getY(), block.getZ());
+        long now = Bukkit.getCurrentTick();
+        long deadline = now + durationTicks;
+
+        long existing = blocks.pending.get(key);
+        if (existing != LongLongMap.MISSING && block.getType() == temporaryOf(existing)) {
+            // Продлеваем только если срок заметно сократился - иначе очередь растет на каждый шаг
+            if (deadlineOf(existing) - now < durationTicks / 2) {
+                long value = encode(deadline, temporaryOf(existing), originalOf(existing));
+                blocks.pending.put(key, value);
+                blocks.queue.push(deadline, key);
+            }
+            return true;
+        }
+
+        // Блок вернулся сам (лед на солнце тает за секунды) - ставим заново,
+        // старая запись в очереди отбросится по несовпадению срока
+        if (block.getType() != original) {
+            return false;
+        }
+
+        block.setType(temporary);
+        blocks.pending.put(key, encode(deadline, temporary, original));
+        blocks.queue.push(deadline, key);
+        return true;
+    }
+
+    /**
+     * Восстанавливает все временные блоки (при выключении плагина)
+     */
+    public void restoreAll() {
+        for (Map.Entry<UUID, WorldBlocks> entry : worlds.entrySet()) {
+            World world = Bukkit.getWorld(entry.getKey());
+            WorldBlocks blocks = entry.getValue();
+            if (world != null) {
+                for (long key : blocks.pending.keys()) {
+                    restore(world, key, blocks.pending.get(key));
+                }
+            }
+            blocks.clear();
+        }
+        worlds.clear();
+
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Количество ожидающих восстановления блоков
+     */
+    public int pendingCount() {
+        int count = 0;
+        for (WorldBlocks blocks : worlds.values()) {
+            count += blocks.pending.size();
+        }
+        return count;
+    }
+
+    private void tick() {
+        if (worlds.isEmpty()) {
+            return;
+        }
+
+        long now = Bukkit.getCurrentTick();
+        int budget = RESTORES_PER_TICK;
+
+        for (Map.Entry<UUID, WorldBlocks> entry : worlds.entrySet()) {
+            WorldBlocks blocks = entry.getValue();
+            World world = Bukkit.getWorld(entry.getKey());
+
+            while (budget > 0 && !blocks.queue.isEmpty() && blocks.queue.peekDeadline() <= now) {
+                long deadline = blocks.queue.peekDeadline();
+                long key = blocks.queue.pop();
+
+                // Ленивая инвалидация: запись могла быть продлена или уже восстановлена
+                long value = blocks.pending.get(key);
+                if (value == LongLongMap.MISSING || deadlineOf(value) != deadline) {
+                    continue;
+                }
+
+                blocks.pending.remove(key);
+                if (world != null) {
+                    restore(world, key, value);
+                }
+                budget--;
+            }
+        }
+
+        worlds.values().removeIf(blocks -> blocks.pending.isEmpty() && blocks.queue.isEmpty());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        WorldBlocks blocks = worlds.get(event.getWorld().getUID());
+        if (blocks == null || blocks.pending.isEmpty()) {
+            return;
+        }
+
+        // Восстанавливаем до сохранения чанка, чтобы лед/обсидиан не остались навсегда
+        Chunk chunk = event.getChunk();
+        int chunkX = chunk.getX();
+        int chunkZ = chunk.getZ();
+        for (long key : blocks.pending.keys()) {
+            if (unpackX(key) >> 4 == chunkX && unpackZ(key) >> 4 == chunkZ) {
+                restore(event.getWorld(), key, blocks.pending.remove(key));
+            }
+        }
+        // Записи в очереди для этих блоков отбросятся при извлечении
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        WorldBlocks blocks = worlds.remove(event.getWorld().getUID());
+        if (blocks != null) {
+            for (long key : blocks.pending.keys()) {
+                restore(event.getWorld(), key, blocks.pending.get(key));
+            }
+        }
+    }
+
+    private void restore(World world, long key, long value) {
+        Block block = world.getBlockAt(unpackX(key), unpackY(key), unpackZ(key));
+        // Блок могли сломать или заменить - трогаем только свой материал
+        if (block.getType() == temporaryOf(value)) {
+            block.setType(originalOf(value));
+        }
+    }
+
+    // ================================
+    // Упаковка координат и значений
+    // ================================
+
+    // x и z по 26 бит, y - 12 бит (как в BlockPosition)
+    static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    static int unpackX(long key) {
+        return (int) (key >> 38);
+    }
+
+    static int unpackY(long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    static int unpackZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+
+    // Срок (старшие 32 бита) + номера материалов временного и исходного блока (по 16 бит)
+    private static long encode(long deadline, Material temporary, Material original) {
+        return (deadline << 32) | ((long) temporary.ordinal() << 16) | original.ordinal();
+    }
+
+    private static long deadlineOf(long value) {
+        return value >>> 32;
+    }
+
+    private static Material temporaryOf(long value) {
+        return MATERIALS[(int) ((value >>> 16) & 0xFFFF)];
+    }
+
+    private static Material originalOf(long value) {
+        return MATERIALS[(int) (value & 0xFFFF)];
+    }
+
+    /**
+     * Временные блоки одного мира
+     */
+    private static final class WorldBlocks {
+        final LongLongMap pending = new LongLongMap();
+        final DeadlineQueue queue = new DeadlineQueue();
+
+        void clear() {
+            pending.clear();
+            queue.clear();
+        }
+    }
+
+    /**
+     * Двоичная куча (срок, ключ) на примитивных массивах
+     */
+    private static final class DeadlineQueue {
+        private long[] deadlines = new long[64];
+        private long[] keys = new long[64];
+        private int size;
+
+        void push(long deadline, long key) {
+            if (size == deadlines.length) {
+                deadlines = Arrays.copyOf(deadlines, size << 1);
+                keys = Arrays.copyOf(keys, size << 1);
+            }
+
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (deadlines[parent] <= deadline) {
+                    break;
+                }
+                deadlines[index] = deadlines[parent];
+                keys[index] = keys[parent];
+                index = parent;
+            }
+            deadlines[index] = deadline;
+            keys[index] = key;
+        }
+
+        long peekDeadline() {
+            return deadlines[0];
+        }
+
+        long pop() {
+            long result = keys[0];
+            int last = --size;
+            long deadline = deadlines[last];
+            long key = keys[last];
+
+            int index = 0;
+            int half = size >>> 1;
+            while (index < half) {
+                int child = (index << 1) + 1;
+                if (child + 1 < size && deadlines[child + 1] < deadlines[child]) {
+                    child++;
+                }
+                if (deadline <= deadlines[child]) {
+                    break;
+                }
+                deadlines[index] = deadlines[child];
+                keys[index] = keys[child];
+                index = child;
+            }
+            if (size > 0) {
+                deadlines[index] = deadline;
+                keys[index] = key;
+            }
+            return result;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
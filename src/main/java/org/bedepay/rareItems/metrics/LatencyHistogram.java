@@ -0,0 +1,105 @@
+package org.bedepay.rareItems.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма времени выполнения с фиксированными границами корзин.
+ * <p>
+ * Запись - поиск корзины по короткому массиву и инкремент LongAdder,
+ * без блокировок и аллокаций, поэтому ее можно оставлять включенной на проде.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Верхние границы корзин в наносекундах (последняя корзина - все, что дольше)
+     */
+    static final long[] BOUNDS = {
+            TimeUnit.MICROSECONDS.toNanos(1),
+            TimeUnit.MICROSECONDS.toNanos(5),
+            TimeUnit.MICROSECONDS.toNanos(10),
+            TimeUnit.MICROSECONDS.toNanos(25),
+            TimeUnit.MICROSECONDS.toNanos(50),
+            TimeUnit.MICROSECONDS.toNanos(100),
+            TimeUnit.MICROSECONDS.toNanos(250),
+            TimeUnit.MICROSECONDS.toNanos(500),
+            TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MICROSECONDS.toNanos(2500),
+            TimeUnit.MILLISECONDS.toNanos(5),
+            TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(50)
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && nanos > BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sumNanos() {
+        return sum.sum();
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Количество записей в корзине (не накопительно)
+     */
+    long bucket(int index) {
+        return buckets[index].sum();
+    }
+
+    /**
+     * Оценка перцентиля сверху - граница корзины, в которую он попадает
+     *
+     * @param quantile от 0 до 1
+     * @return наносекунды или -1, если записей нет
+     */
+    public long quantileUpperBound(double quantile) {
+        long total = count();
+        if (total == 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += bucket(i);
+            if (seen >= rank) {
+                return BOUNDS[i];
+            }
+        }
+        return maxNanos();
+    }
+
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+}
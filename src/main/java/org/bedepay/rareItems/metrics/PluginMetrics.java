@@ -0,0 +1,353 @@
+package org.bedepay.rareItems.metrics;
+
+import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.config.Settings;
+import org.bedepay.rareItems.manager.CooldownRegistry;
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityResolver;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики плагина: время обработчиков, исходы бросков и улучшений, отказы по кулдауну
+ * и попадания в кэши.
+ * <p>
+ * Все значения - LongAdder, запись из любого потока без блокировок. Просмотр -
+ * /rareitems stats, выгрузка - текстовый файл в формате Prometheus (для node_exporter
+ * textfile collector), по таймеру и по команде.
+ */
+public class PluginMetrics {
+
+    /**
+     * Замеряемые обработчики
+     */
+    public enum Hook {
+        CRAFT("CraftListener.onCraft"),
+        UPGRADE_PREPARE("RarityUpgradeListener.onPrepareUpgrade"),
+        ABILITY_DAMAGE("SpecialAbilityListener.onEntityDamageByEntity"),
+        EFFECT_DAMAGE("WeaponEffectListener.onEntityDamageByEntity"),
+        PLAYER_MOVE("SpecialAbilityListener.onPlayerMove"),
+        LOOT_GENERATE("DungeonLootListener.onLootGenerate"),
+        ARMOR_TICK("ArmorEffectScheduler.tick");
+
+        private final String label;
+
+        Hook(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * Источник броска редкости
+     */
+    public enum RollSource {
+        CRAFT,
+        DUNGEON
+    }
+
+    /**
+     * Исход комбинирования предметов
+     */
+    public enum UpgradeOutcome {
+        SUCCESS,
+        FAILURE,
+        CRITICAL_FAILURE
+    }
+
+    /**
+     * Кэши с учетом попаданий
+     */
+    public enum Cache {
+        RARITY_RESOLVER,
+        EQUIPMENT_HAND,
+        IGNORED_NAMES
+    }
+
+    // Исход броска без редкости
+    public static final String NO_RARITY = "none";
+
+    private final RareItems plugin;
+
+    private final Map<Hook, LatencyHistogram> hooks = new EnumMap<>(Hook.class);
+    private final Map<RollSource, Map<String, LongAdder>> rolls = new EnumMap<>(RollSource.class);
+    private final Map<UpgradeOutcome, LongAdder> upgrades = new EnumMap<>(UpgradeOutcome.class);
+    private final Map<CooldownRegistry.Ability, LongAdder> cooldownRejections = new EnumMap<>(CooldownRegistry.Ability.class);
+    private final Map<Cache, LongAdder> cacheHits = new EnumMap<>(Cache.class);
+    private final Map<Cache, LongAdder> cacheMisses = new EnumMap<>(Cache.class);
+
+    private volatile boolean enabled = true;
+    private BukkitTask exportTask;
+
+    public PluginMetrics(RareItems plugin) {
+        this.plugin = plugin;
+        for (Hook hook : Hook.values()) {
+            hooks.put(hook, new LatencyHistogram());
+        }
+        for (RollSource source : RollSource.values()) {
+            rolls.put(source, new ConcurrentHashMap<>());
+        }
+        for (UpgradeOutcome outcome : UpgradeOutcome.values()) {
+            upgrades.put(outcome, new LongAdder());
+        }
+        for (CooldownRegistry.Ability ability : CooldownRegistry.Ability.values()) {
+            cooldownRejections.put(ability, new LongAdder());
+        }
+        for (Cache cache : Cache.values()) {
+            cacheHits.put(cache, new LongAdder());
+            cacheMisses.put(cache, new LongAdder());
+        }
+    }
+
+    /**
+     * Применяет настройки metrics из конфига и перезапускает выгрузку по таймеру
+     */
+    public void reload() {
+        Settings.MetricsExport settings = plugin.getConfigManager().getSettings().metrics();
+        enabled = settings.enabled();
+
+        stop();
+        if (enabled && settings.exportInterval() > 0) {
+            long period = settings.exportInterval() * 20L;
+            exportTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::exportQuietly, period, period);
+        }
+    }
+
+    public void stop() {
+        if (exportTask != null) {
+            exportTask.cancel();
+            exportTask = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ================================
+    // Запись
+    // ================================
+
+    /**
+     * Начало замера обработчика (0, если метрики выключены)
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Конец замера, начатого {@link #start()}
+     */
+    public void stop(Hook hook, long start) {
+        if (start != 0L) {
+            hooks.get(hook).record(System.nanoTime() - start);
+        }
+    }
+
+    public void roll(RollSource source, Rarity outcome) {
+        if (enabled) {
+            String id = outcome != null ? outcome.id() : NO_RARITY;
+            rolls.get(source).computeIfAbsent(id, key -> new LongAdder()).increment();
+        }
+    }
+
+    public void upgrade(UpgradeOutcome outcome) {
+        if (enabled) {
+            upgrades.get(outcome).increment();
+        }
+    }
+
+    public void cooldownRejected(CooldownRegistry.Ability ability) {
+        if (enabled) {
+            cooldownRejections.get(ability).increment();
+        }
+    }
+
+    public void cache(Cache cache, boolean hit) {
+        if (enabled) {
+            (hit ? cacheHits : cacheMisses).get(cache).increment();
+        }
+    }
+
+    /**
+     * Сбрасывает все значения (например, перед замером после изменения шансов)
+     */
+    public void reset() {
+        hooks.values().forEach(LatencyHistogram::reset);
+        rolls.values().forEach(Map::clear);
+        upgrades.values().forEach(LongAdder::reset);
+        cooldownRejections.values().forEach(LongAdder::reset);
+        cacheHits.values().forEach(LongAdder::reset);
+        cacheMisses.values().forEach(LongAdder::reset);
+        RarityResolver.resetCacheStats();
+    }
+
+    // ================================
+    // Чтение
+    // ================================
+
+    public LatencyHistogram hook(Hook hook) {
+        return hooks.get(hook);
+    }
+
+    /**
+     * Исходы бросков по id редкости (отсортированы по id)
+     */
+    public Map<String, Long> rolls(RollSource source) {
+        Map<String, Long> result = new TreeMap<>();
+        rolls.get(source).forEach((id, counter) -> result.put(id, counter.sum()));
+        return result;
+    }
+
+    public long upgrades(UpgradeOutcome outcome) {
+        return upgrades.get(outcome).sum();
+    }
+
+    public long cooldownRejections(CooldownRegistry.Ability ability) {
+        return cooldownRejections.get(ability).sum();
+    }
+
+    public long cacheHits(Cache cache) {
+        // Резолвер статический и считает попадания сам
+        return cache == Cache.RARITY_RESOLVER ? RarityResolver.cacheHits() : cacheHits.get(cache).sum();
+    }
+
+    public long cacheMisses(Cache cache) {
+        return cache == Cache.RARITY_RESOLVER ? RarityResolver.cacheMisses() : cacheMisses.get(cache).sum();
+    }
+
+    // ================================
+    // Выгрузка
+    // ================================
+
+    /**
+     * Файл выгрузки из настроек (путь относительно папки плагина)
+     */
+    public File exportFile() {
+        return new File(plugin.getDataFolder(), plugin.getConfigManager().getSettings().metrics().exportFile());
+    }
+
+    /**
+     * Записывает метрики в файл в рабочем потоке
+     *
+     * @return путь к записанному файлу
+     */
+    public CompletableFuture<Path> exportAsync() {
+        File file = exportFile();
+        return CompletableFuture.supplyAsync(() -> export(file.toPath()),
+                task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task));
+    }
+
+    private void exportQuietly() {
+        try {
+            export(exportFile().toPath());
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("Не удалось выгрузить метрики: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Пишет во временный файл и подменяет целевой, чтобы сборщик не прочитал файл наполовину
+     */
+    private Path export(Path target) {
+        try {
+            Path parent = target.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+            Files.writeString(temp, toPrometheus(), StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return target;
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Текстовый формат Prometheus
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "rareitems_hook_duration_seconds", "histogram", "Время выполнения обработчиков");
+        for (Hook hook : Hook.values()) {
+            LatencyHistogram histogram = hooks.get(hook);
+            String labels = "hook=\"" + hook.label() + "\"";
+            long cumulative = 0;
+            for (int i = 0; i < LatencyHistogram.BOUNDS.length; i++) {
+                cumulative += histogram.bucket(i);
+                line(out, "rareitems_hook_duration_seconds_bucket", labels + ",le=\"" + seconds(LatencyHistogram.BOUNDS[i]) + "\"", cumulative);
+            }
+            line(out, "rareitems_hook_duration_seconds_bucket", labels + ",le=\"+Inf\"", histogram.count());
+            out.append("rareitems_hook_duration_seconds_sum{").append(labels).append("} ")
+                    .append(seconds(histogram.sumNanos())).append('\n');
+            line(out, "rareitems_hook_duration_seconds_count", labels, histogram.count());
+        }
+
+        header(out, "rareitems_hook_duration_max_seconds", "gauge", "Самый долгий вызов обработчика");
+        for (Hook hook : Hook.values()) {
+            out.append("rareitems_hook_duration_max_seconds{hook=\"").append(hook.label()).append("\"} ")
+                    .append(seconds(hooks.get(hook).maxNanos())).append('\n');
+        }
+
+        header(out, "rareitems_rarity_rolls_total", "counter", "Броски редкости по источнику и исходу");
+        for (RollSource source : RollSource.values()) {
+            for (Map.Entry<String, Long> entry : rolls(source).entrySet()) {
+                line(out, "rareitems_rarity_rolls_total",
+                        "source=\"" + name(source) + "\",outcome=\"" + entry.getKey() + "\"", entry.getValue());
+            }
+        }
+
+        header(out, "rareitems_upgrades_total", "counter", "Комбинирования предметов по исходу");
+        for (UpgradeOutcome outcome : UpgradeOutcome.values()) {
+            line(out, "rareitems_upgrades_total", "outcome=\"" + name(outcome) + "\"", upgrades(outcome));
+        }
+
+        header(out, "rareitems_cooldown_rejections_total", "counter", "Срабатывания, отклоненные кулдауном");
+        for (CooldownRegistry.Ability ability : CooldownRegistry.Ability.values()) {
+            line(out, "rareitems_cooldown_rejections_total", "ability=\"" + name(ability) + "\"", cooldownRejections(ability));
+        }
+
+        header(out, "rareitems_cache_requests_total", "counter", "Обращения к кэшам");
+        for (Cache cache : Cache.values()) {
+            line(out, "rareitems_cache_requests_total", "cache=\"" + name(cache) + "\",result=\"hit\"", cacheHits(cache));
+            line(out, "rareitems_cache_requests_total", "cache=\"" + name(cache) + "\",result=\"miss\"", cacheMisses(cache));
+        }
+
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void line(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
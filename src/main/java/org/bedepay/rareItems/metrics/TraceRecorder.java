@@ -0,0 +1,214 @@
+package org.bedepay.rareItems.metrics;
+
+import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Трассировка решений боевых и крафтовых обработчиков для отдельных игроков.
+ * <p>
+ * Включается командой для конкретного игрока; события пишутся в кольцевой буфер
+ * фиксированного размера и выгружаются в файл JSON Lines по команде. Для игроков
+ * без трассировки обработчик платит одной проверкой флага (и поиском в наборе,
+ * пока трассировка включена хоть у кого-то) - без замеров времени и аллокаций.
+ */
+public class TraceRecorder {
+
+    // Размер буфера - степень двойки для быстрого вычисления слота
+    private static final int CAPACITY = 4096;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * Место в конвейере, где принято решение
+     */
+    public enum Stage {
+        WEAPON_EFFECT,
+        ABILITY_STRIKE,
+        ABILITY_SHOT,
+        ABILITY_TELEPORT,
+        CRAFT,
+        UPGRADE
+    }
+
+    /**
+     * Принятое решение
+     */
+    public enum Outcome {
+        TRIGGERED,
+        CHANCE_FAILED,
+        ON_COOLDOWN,
+        NO_ABILITY,
+        NO_RARITY,
+        IGNORED,
+        FAILED
+    }
+
+    /**
+     * Событие трассировки
+     *
+     * @param time         время события
+     * @param tick         тик сервера
+     * @param roll         выпавшее значение (NaN - броска не было)
+     * @param chance       порог срабатывания (NaN - не применим)
+     * @param elapsedNanos время от входа в обработчик до решения
+     */
+    public record TraceEvent(long time, int tick, UUID playerId, String playerName, Stage stage, String rarityId,
+                             Outcome outcome, double roll, double chance, long elapsedNanos) {
+    }
+
+    private final RareItems plugin;
+    private final Set<UUID> traced = ConcurrentHashMap.newKeySet();
+    private final AtomicReferenceArray<TraceEvent> ring = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong written = new AtomicLong();
+
+    // Быстрая проверка без обращения к набору, пока никого не трассируем
+    private volatile boolean active;
+
+    public TraceRecorder(RareItems plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Начало трассировки обработчика
+     *
+     * @return метка времени или 0, если игрок не трассируется
+     */
+    public long start(Player player) {
+        return active && traced.contains(player.getUniqueId()) ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Записывает решение обработчика (ничего не делает, если start вернул 0)
+     */
+    public void record(long start, Player player, Stage stage, Rarity rarity, Outcome outcome,
+                       double roll, double chance) {
+        if (start == 0L) {
+            return;
+        }
+        TraceEvent event = new TraceEvent(System.currentTimeMillis(), Bukkit.getCurrentTick(),
+                player.getUniqueId(), player.getName(), stage, rarity != null ? rarity.id() : null,
+                outcome, roll, chance, System.nanoTime() - start);
+        ring.set((int) (written.getAndIncrement() & MASK), event);
+    }
+
+    // ================================
+    // Управление
+    // ================================
+
+    public void enable(UUID playerId) {
+        traced.add(playerId);
+        active = true;
+    }
+
+    public void disable(UUID playerId) {
+        traced.remove(playerId);
+        active = !traced.isEmpty();
+    }
+
+    public boolean isTraced(UUID playerId) {
+        return traced.contains(playerId);
+    }
+
+    public Set<UUID> tracedPlayers() {
+        return Set.copyOf(traced);
+    }
+
+    public void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            ring.set(i, null);
+        }
+        written.set(0);
+    }
+
+    /**
+     * Событий в буфере (не больше его размера)
+     */
+    public int size() {
+        return (int) Math.min(written.get(), CAPACITY);
+    }
+
+    /**
+     * Копия буфера от старых событий к новым
+     */
+    public List<TraceEvent> snapshot() {
+        long end = written.get();
+        long begin = Math.max(0, end - CAPACITY);
+        List<TraceEvent> events = new ArrayList<>((int) (end - begin));
+        for (long i = begin; i < end; i++) {
+            TraceEvent event = ring.get((int) (i & MASK));
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    // ================================
+    // Выгрузка
+    // ================================
+
+    /**
+     * Копирует буфер в вызывающем потоке и пишет файл в рабочем
+     *
+     * @return путь к записанному файлу
+     */
+    public CompletableFuture<Path> dumpAsync() {
+        List<TraceEvent> events = snapshot();
+        Path target = plugin.getDataFolder().toPath().resolve("traces")
+                .resolve("trace-" + LocalDateTime.now().format(FILE_NAME) + ".jsonl");
+        return CompletableFuture.supplyAsync(() -> write(target, events),
+                task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task));
+    }
+
+    private static Path write(Path target, List<TraceEvent> events) {
+        StringBuilder out = new StringBuilder(events.size() * 200);
+        for (TraceEvent event : events) {
+            out.append("{\"time\":\"").append(Instant.ofEpochMilli(event.time())).append('"')
+                    .append(",\"tick\":").append(event.tick())
+                    .append(",\"player\":\"").append(event.playerName()).append('"')
+                    .append(",\"uuid\":\"").append(event.playerId()).append('"')
+                    .append(",\"stage\":\"").append(name(event.stage())).append('"')
+                    .append(",\"rarity\":").append(event.rarityId() != null ? '"' + event.rarityId() + '"' : "null")
+                    .append(",\"outcome\":\"").append(name(event.outcome())).append('"')
+                    .append(",\"roll\":").append(number(event.roll()))
+                    .append(",\"chance\":").append(number(event.chance()))
+                    .append(",\"elapsedNanos\":").append(event.elapsedNanos())
+                    .append("}\n");
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Files.writeString(target, out, StandardCharsets.UTF_8);
+            return target;
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) ? "null" : String.valueOf(value);
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,79 @@
+package org.bedepay.rareItems.rarity;
+
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * Скомпилированная способность для пары (редкость, семейство предметов).
+ * <p>
+ * Создается из секции specialAbilities при загрузке конфига: эффекты зелий, частицы
+ * и звуки разбираются один раз, а обработчики событий только читают готовые значения.
+ */
+public sealed interface Ability permits Ability.Strike, Ability.Shot, Ability.Stride, Ability.Aura {
+
+    /**
+     * Удар оружием ближнего боя (мечи, топоры, трезубцы)
+     *
+     * @param chance           шанс срабатывания от 0 до 1
+     * @param critical         показывать титр критического удара
+     * @param targetEffects    эффекты на цель
+     * @param stopTarget       полностью остановить цель
+     * @param lightningStrikes количество молний в цель
+     * @param lightningSpread  разброс молний вокруг цели
+     * @param pullRadius       радиус притягивания врагов к атакующему (0 - нет)
+     * @param particles        частицы у цели (у атакующего при притягивании)
+     */
+    record Strike(double chance, boolean critical, PotionEffect[] targetEffects, boolean stopTarget,
+                  int lightningStrikes, double lightningSpread, double pullRadius,
+                  Burst[] particles, Sound sound, float pitch) implements Ability {
+    }
+
+    /**
+     * Выстрел из лука или арбалета
+     *
+     * @param damageMultiplier   множитель урона стрелы
+     * @param velocityMultiplier множитель скорости стрелы
+     * @param fireTicks          поджог стрелы (0 - нет)
+     * @param explosionPower     сила взрыва при попадании (0 - нет)
+     * @param shooterEffects     эффекты на стрелка при попадании
+     * @param targetEffects      эффекты на цель при попадании
+     * @param hitParticles       частицы в точке попадания
+     * @param damageParticle     частицы бонусного урона по цели
+     */
+    record Shot(double damageMultiplier, double velocityMultiplier, int fireTicks, float explosionPower,
+                PotionEffect[] shooterEffects, PotionEffect[] targetEffects, Burst[] hitParticles,
+                Particle damageParticle) implements Ability {
+    }
+
+    /**
+     * Способности ботинок
+     *
+     * @param frostRadius       радиус ледяной дорожки по воде (-1 - нет, 0 - один блок)
+     * @param frostTicks        время жизни льда в тиках
+     * @param fireTrailRadius   радиус поджога врагов огненными следами (0 - нет)
+     * @param fireTrailTicks    длительность поджога
+     * @param lavaWalkTicks     время жизни обсидиана над лавой (0 - нет)
+     * @param teleportDistance  дальность телепорта при приседании и ПКМ (0 - нет)
+     * @param teleportCooldown  кулдаун телепорта в миллисекундах
+     */
+    record Stride(int frostRadius, long frostTicks, double fireTrailRadius, int fireTrailTicks,
+                  long lavaWalkTicks, double teleportDistance, long teleportCooldown) implements Ability {
+    }
+
+    /**
+     * Постоянные эффекты от ношения брони
+     *
+     * @param effects эффекты на владельца
+     * @param cleanse эффекты, которые снимаются с владельца
+     */
+    record Aura(PotionEffect[] effects, PotionEffectType[] cleanse) implements Ability {
+    }
+
+    /**
+     * Облако частиц: тип, количество и разброс по осям
+     */
+    record Burst(Particle particle, int count, double dx, double dy, double dz) {
+    }
+}
@@ -0,0 +1,370 @@
+package org.bedepay.rareItems.rarity;
+
+import org.bedepay.rareItems.util.ToolFamily;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Неизменяемая таблица способностей [порядковый номер редкости][семейство предмета].
+ * <p>
+ * Собирается из specialAbilities при загрузке конфига. Для каждого семейства способности
+ * задаются в подсекции rarities (по id редкости), общие для всех редкостей значения - в base.
+ * Новая редкость получает способности без изменения кода, а поиск при ударе - индекс в массиве.
+ */
+public final class AbilityTable {
+
+    /**
+     * Длительность постоянных эффектов брони в тиках (обновляет ArmorEffectScheduler)
+     */
+    public static final int AURA_DURATION = 120;
+
+    public static final AbilityTable EMPTY = new AbilityTable(new Rarity[0], new Ability[0][], 0);
+
+    private static final ToolFamily[] FAMILIES = ToolFamily.values();
+    private static final PotionEffect[] NO_EFFECTS = new PotionEffect[0];
+    private static final PotionEffectType[] NO_TYPES = new PotionEffectType[0];
+    private static final Ability.Burst[] NO_PARTICLES = new Ability.Burst[0];
+
+    private final Rarity[] rarities;
+    private final Ability[][] table;
+    private final int size;
+
+    private AbilityTable(Rarity[] rarities, Ability[][] table, int size) {
+        this.rarities = rarities;
+        this.table = table;
+        this.size = size;
+    }
+
+    /**
+     * Получает способность или null, если для пары ничего не задано
+     */
+    public Ability get(Rarity rarity, ToolFamily family) {
+        if (rarity == null || family == null) {
+            return null;
+        }
+        int ordinal = RarityResolver.ordinal(rarity.id());
+        // Редкость могла устареть после перезагрузки - сверяем по ссылке
+        if (ordinal < 0 || ordinal >= rarities.length || rarities[ordinal] != rarity) {
+            return null;
+        }
+        return table[ordinal][family.ordinal()];
+    }
+
+    public Ability.Strike strike(Rarity rarity, ToolFamily family) {
+        return get(rarity, family) instanceof Ability.Strike strike ? strike : null;
+    }
+
+    public Ability.Shot shot(Rarity rarity, ToolFamily family) {
+        return get(rarity, family) instanceof Ability.Shot shot ? shot : null;
+    }
+
+    public Ability.Stride stride(Rarity rarity, ToolFamily family) {
+        return get(rarity, family) instanceof Ability.Stride stride ? stride : null;
+    }
+
+    public Ability.Aura aura(Rarity rarity, ToolFamily family) {
+        return get(rarity, family) instanceof Ability.Aura aura ? aura : null;
+    }
+
+    /**
+     * Количество заданных способностей (для отладки)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Компилирует таблицу из секции specialAbilities
+     *
+     * @param rarities редкости в порядке RarityResolver
+     */
+    public static AbilityTable compile(ConfigurationSection root, List<Rarity> rarities, Logger logger) {
+        if (root == null || !root.getBoolean("globalEnabled", true)) {
+            return EMPTY;
+        }
+
+        Ability[][] table = new Ability[rarities.size()][FAMILIES.length];
+        boolean armorEnabled = root.getBoolean("armor.enabled", true);
+        int size = 0;
+
+        for (ToolFamily family : FAMILIES) {
+            String sectionName = sectionOf(family);
+            if (sectionName == null || (isArmorAura(family) && !armorEnabled)) {
+                continue;
+            }
+
+            ConfigurationSection section = subsection(root, sectionName);
+            if (section == null || !section.getBoolean("enabled", true)) {
+                continue;
+            }
+
+            ConfigurationSection byRarity = subsection(section, "rarities");
+            if (byRarity == null) {
+                continue;
+            }
+            Set<String> ids = byRarity.getKeys(false);
+
+            for (int i = 0; i < rarities.size(); i++) {
+                String id = rarities.get(i).id();
+                ConfigurationSection definition = byRarity.getConfigurationSection(id);
+                if (!ids.contains(id) || definition == null || !definition.getBoolean("enabled", true)) {
+                    continue;
+                }
+
+                Values values = new Values(definition, subsection(section, "base"), logger,
+                        sectionName + "." + id);
+                table[i][family.ordinal()] = switch (family) {
+                    case SWORD, AXE, TRIDENT -> strike(values);
+                    case BOW, CROSSBOW -> shot(values, section);
+                    case BOOTS -> stride(values, section);
+                    default -> aura(values);
+                };
+                size++;
+            }
+        }
+
+        return new AbilityTable(rarities.toArray(new Rarity[0]), table, size);
+    }
+
+    private static Ability.Strike strike(Values values) {
+        return new Ability.Strike(
+                values.getDouble("chance", 1.0),
+                values.getBoolean("critical", false),
+                values.effects("targetEffects"),
+                values.getBoolean("stopTarget", false),
+                values.getInt("lightning", 0),
+                values.getDouble("lightningSpread", 0.0),
+                values.getDouble("pullRadius", 0.0),
+                values.particles("particles"),
+                values.sound("sound"),
+                (float) values.getDouble("pitch", 1.0)
+        );
+    }
+
+    private static Ability.Shot shot(Values values, ConfigurationSection section) {
+        float explosionPower = values.getBoolean("explosive", false)
+                ? (float) section.getDouble("explosionPower", 1.5)
+                : 0.0f;
+        Particle damageParticle = values.particle("damageParticle");
+
+        return new Ability.Shot(
+                values.getDouble("damageMultiplier", 1.0),
+                values.getDouble("velocityMultiplier", 1.0),
+                values.getInt("fireTicks", 0),
+                explosionPower,
+                values.effects("shooterEffects"),
+                values.effects("targetEffects"),
+                values.particles("hitParticles"),
+                damageParticle != null ? damageParticle : Particle.DAMAGE_INDICATOR
+        );
+    }
+
+    private static Ability.Stride stride(Values values, ConfigurationSection section) {
+        return new Ability.Stride(
+                values.getInt("frostRadius", -1),
+                section.getLong("iceBlockDuration", 100L),
+                values.getDouble("fireTrailRadius", 0.0),
+                values.getInt("fireTrailTicks", 40),
+                values.getBoolean("lavaWalk", false) ? section.getLong("lavaBlockDuration", 200L) : 0L,
+                values.getDouble("teleportDistance", 0.0),
+                section.getLong("teleportCooldown", 10000L)
+        );
+    }
+
+    private static Ability.Aura aura(Values values) {
+        return new Ability.Aura(values.auraEffects("effects"), values.effectTypes("cleanse"));
+    }
+
+    private static String sectionOf(ToolFamily family) {
+        return switch (family) {
+            case SWORD -> "swords";
+            case AXE -> "axes";
+            case TRIDENT -> "tridents";
+            case BOW, CROSSBOW -> "bows";
+            case HELMET -> "helmets";
+            case CHESTPLATE -> "chestplates";
+            case LEGGINGS -> "leggings";
+            case BOOTS -> "boots";
+            default -> null;
+        };
+    }
+
+    private static boolean isArmorAura(ToolFamily family) {
+        return family.isArmorPiece() && family != ToolFamily.BOOTS;
+    }
+
+    /**
+     * Подсекция из файла игрока, а если ее там нет целиком - из config.yml по умолчанию.
+     * Ключи двух секций не смешиваются: удаленная игроком запись не возвращается из плагина.
+     */
+    private static ConfigurationSection subsection(ConfigurationSection parent, String key) {
+        // get(key, null) не заглядывает в значения по умолчанию и не создает пустую секцию
+        if (parent.get(key, null) instanceof ConfigurationSection section) {
+            return section;
+        }
+        ConfigurationSection defaults = parent.getDefaultSection();
+        return defaults != null ? defaults.getConfigurationSection(key) : null;
+    }
+
+    /**
+     * Чтение значений способности: сначала из секции редкости, затем из base семейства
+     */
+    private record Values(ConfigurationSection definition, ConfigurationSection base, Logger logger, String path) {
+
+        private ConfigurationSection source(String key) {
+            if (definition.contains(key) || base == null || !base.contains(key)) {
+                return definition;
+            }
+            return base;
+        }
+
+        double getDouble(String key, double def) {
+            return source(key).getDouble(key, def);
+        }
+
+        int getInt(String key, int def) {
+            return source(key).getInt(key, def);
+        }
+
+        boolean getBoolean(String key, boolean def) {
+            return source(key).getBoolean(key, def);
+        }
+
+        Sound sound(String key) {
+            String name = source(key).getString(key, "NONE");
+            if (name.equalsIgnoreCase("NONE")) {
+                return null;
+            }
+            try {
+                return Sound.valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Неверный звук способности " + path + ": " + name);
+                return null;
+            }
+        }
+
+        Particle particle(String key) {
+            String name = source(key).getString(key);
+            return name != null ? parseParticle(name) : null;
+        }
+
+        /**
+         * Частицы вида "ТИП: [количество, dx, dy, dz]"
+         */
+        Ability.Burst[] particles(String key) {
+            ConfigurationSection section = subsection(source(key), key);
+            if (section == null) {
+                return NO_PARTICLES;
+            }
+
+            List<Ability.Burst> bursts = new ArrayList<>();
+            for (String name : section.getKeys(false)) {
+                Particle particle = parseParticle(name);
+                List<Double> spec = section.getDoubleList(name);
+                if (particle == null) {
+                    continue;
+                }
+                bursts.add(new Ability.Burst(particle,
+                        spec.isEmpty() ? 10 : spec.get(0).intValue(),
+                        spec.size() > 1 ? spec.get(1) : 0.5,
+                        spec.size() > 2 ? spec.get(2) : 0.5,
+                        spec.size() > 3 ? spec.get(3) : 0.5));
+            }
+            return bursts.toArray(NO_PARTICLES);
+        }
+
+        /**
+         * Эффекты вида "эффект: [длительность в тиках, уровень]"
+         */
+        PotionEffect[] effects(String key) {
+            ConfigurationSection section = subsection(source(key), key);
+            if (section == null) {
+                return NO_EFFECTS;
+            }
+
+            List<PotionEffect> effects = new ArrayList<>();
+            for (String name : section.getKeys(false)) {
+                PotionEffectType type = parseEffect(name);
+                List<Integer> spec = section.getIntegerList(name);
+                if (type == null) {
+                    continue;
+                }
+                effects.add(new PotionEffect(type,
+                        spec.isEmpty() ? 60 : spec.get(0),
+                        spec.size() > 1 ? spec.get(1) : 0));
+            }
+            return effects.toArray(NO_EFFECTS);
+        }
+
+        /**
+         * Постоянные эффекты брони вида "эффект: уровень"
+         */
+        PotionEffect[] auraEffects(String key) {
+            ConfigurationSection section = subsection(source(key), key);
+            if (section == null) {
+                return NO_EFFECTS;
+            }
+
+            List<PotionEffect> effects = new ArrayList<>();
+            for (String name : section.getKeys(false)) {
+                PotionEffectType type = parseEffect(name);
+                if (type != null) {
+                    effects.add(new PotionEffect(type, AURA_DURATION, section.getInt(name, 0)));
+                }
+            }
+            return effects.toArray(NO_EFFECTS);
+        }
+
+        PotionEffectType[] effectTypes(String key) {
+            List<PotionEffectType> types = new ArrayList<>();
+            for (String name : source(key).getStringList(key)) {
+                PotionEffectType type = parseEffect(name);
+                if (type != null) {
+                    types.add(type);
+                }
+            }
+            return types.toArray(NO_TYPES);
+        }
+
+        private Particle parseParticle(String name) {
+            try {
+                Particle particle = Particle.valueOf(name.toUpperCase(Locale.ROOT));
+                // Частицы с данными (блок, предмет, цвет) требуют параметров, которых в конфиге нет
+                if (particle.getDataType() != Void.class) {
+                    logger.warning("Частица " + name + " в " + path + " требует данных и не поддерживается");
+                    return null;
+                }
+                return particle;
+            } catch (IllegalArgumentException e) {
+                logger.warning("Неверная частица способности " + path + ": " + name);
+                return null;
+            }
+        }
+
+        private PotionEffectType parseEffect(String name) {
+            PotionEffectType type = null;
+            try {
+                type = PotionEffectType.getByKey(NamespacedKey.minecraft(name.toLowerCase(Locale.ROOT)));
+            } catch (IllegalArgumentException ignored) {
+                // Недопустимые символы в ключе - пробуем старое имя ниже
+            }
+            if (type == null) {
+                type = PotionEffectType.getByName(name.toUpperCase(Locale.ROOT));
+            }
+            if (type == null) {
+                logger.warning("Неверный эффект способности " + path + ": " + name);
+            }
+            return type;
+        }
+    }
+}
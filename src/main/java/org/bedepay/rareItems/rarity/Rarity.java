@@ -79,6 +79,30 @@ public String getDisplayName() {
         return name();
     }
     
+    /**
+     * Отпечаток всего, что влияет на оформление и атрибуты предмета.
+     * Хранится в предмете и не зависит от запуска: без identity hashCode и порядка Map.
+     */
+    public int definitionHash() {
+        int hash = id.hashCode();
+        hash = 31 * hash + name.hashCode();
+        hash = 31 * hash + color.value();
+        hash = 31 * hash + Double.hashCode(damageBonus);
+        hash = 31 * hash + Double.hashCode(armorBonus);
+        hash = 31 * hash + Double.hashCode(speedBonus);
+        hash = 31 * hash + Double.hashCode(toughnessBonus);
+        hash = 31 * hash + Double.hashCode(attackSpeedBonus);
+        hash = 31 * hash + Double.hashCode(healthBonus);
+        hash = 31 * hash + Double.hashCode(luckBonus);
+        hash = 31 * hash + Double.hashCode(effectChance);
+        // Сумма не зависит от порядка обхода
+        int effects = 0;
+        for (Map.Entry<PotionEffectType, Integer> effect : onHitEffects.entrySet()) {
+            effects += 31 * effect.getKey().getKey().toString().hashCode() + effect.getValue();
+        }
+        return 31 * hash + effects;
+    }
+    
     /**
      * Дополнительные методы для совместимости с новым Command API
      */
@@ -0,0 +1,316 @@
+package org.bedepay.rareItems.rarity;
+
+import org.bedepay.rareItems.util.Keys;
+import org.bedepay.rareItems.util.MaterialTypeChecker;
+import org.bedepay.rareItems.util.ToolFamily;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.UnaryOperator;
+
+/**
+ * Единый формат данных плагина в PDC предметов и стрел.
+ * <p>
+ * Вместо набора отдельных ключей хранится одна версионированная запись BYTE_ARRAY.
+ * Предметы старого формата (строковый ключ rarity) читаются как раньше и
+ * переписываются в новый формат при первом касании без перерисовки - см. {@link #migrate(ItemStack)}.
+ * <p>
+ * Формат записи предмета (версия 3):
+ * версия, флаги, семейство, число улучшений, зерно броска (8 байт), отпечаток определения
+ * редкости (4 байта), отпечатки названия и описания (по 4 байта), число строк описания,
+ * длина ID и ID редкости в UTF-8. Версия 2 - то же без отпечатков названия и описания,
+ * версия 1 - еще и без отпечатка определения, такие предметы сами не перерисовываются.
+ * <p>
+ * Формат записи стрелы (версия 1):
+ * версия, флаги, множитель урона (8 байт), длина ID и ID редкости в UTF-8.
+ */
+public final class RarityCodec {
+
+    public static final byte VERSION = 3;
+    public static final byte ARROW_VERSION = 1;
+
+    /**
+     * Превью результата улучшения в сетке крафта (CraftListener не бросает на него редкость)
+     */
+    public static final int FLAG_UPGRADE_PREVIEW = 1;
+
+    /**
+     * Запись прочитана из старого формата. Не сохраняется.
+     */
+    public static final int FLAG_LEGACY = 1 << 7;
+
+    /**
+     * Зерно новых предметов. Место в записи оставлено, но случайное значение сделало бы
+     * одинаковые редкие предметы неравными для isSimilar и стаков, пока зерно никто не читает.
+     */
+    public static final long NO_SEED = 0L;
+
+    private static final int ITEM_HEADER_V1 = 12;
+    private static final int ITEM_HEADER_V2 = 16;
+    private static final int ITEM_HEADER = 25;
+    private static final int ARROW_HEADER = 10;
+    private static final int MAX_ID_LENGTH = 255;
+
+    private static final ToolFamily[] FAMILIES = ToolFamily.values();
+
+    /**
+     * Данные редкого предмета
+     *
+     * @param rarityId ID редкости
+     * @param family   семейство предмета на момент создания
+     * @param seed     зерно броска предмета (пока не используется и всегда {@link #NO_SEED})
+     * @param upgrades   сколько раз предмет улучшали комбинированием
+     * @param definition отпечаток определения редкости, по которому предмет оформлен (0 - неизвестен)
+     * @param look       что плагин записал в название и описание
+     * @param flags      флаги FLAG_*
+     */
+    public record ItemData(String rarityId, ToolFamily family, long seed, int upgrades, int definition, Look look,
+                           int flags) {
+
+        public boolean hasFlag(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        public ItemData withRarity(String rarityId, int definition, Look look) {
+            return new ItemData(rarityId, family, seed, upgrades, definition, look, flags);
+        }
+
+        public ItemData withUpgrades(int upgrades) {
+            return new ItemData(rarityId, family, seed, upgrades, definition, look, flags);
+        }
+
+        public ItemData withFlags(int flags) {
+            return new ItemData(rarityId, family, seed, upgrades, definition, look, flags);
+        }
+    }
+
+    /**
+     * Отпечатки названия и первых строк описания, записанных плагином. По ним перерисовка
+     * отличает свое оформление от переименования на наковальне и строк других плагинов.
+     *
+     * @param name      отпечаток названия
+     * @param lore      отпечаток строк описания плагина
+     * @param loreLines сколько первых строк описания принадлежат плагину
+     */
+    public record Look(int name, int lore, int loreLines) {
+
+        /**
+         * Предмет оформлен до появления отпечатков - оформление считается своим
+         */
+        public static final Look UNKNOWN = new Look(0, 0, 0);
+
+        public boolean isKnown() {
+            return !equals(UNKNOWN);
+        }
+    }
+
+    /**
+     * Данные стрелы, выпущенной из редкого лука
+     *
+     * @param rarityId         ID редкости лука
+     * @param damageMultiplier множитель урона попадания
+     */
+    public record ArrowData(String rarityId, double damageMultiplier) {
+    }
+
+    private RarityCodec() {
+    }
+
+    /**
+     * Новая запись для предмета
+     */
+    public static ItemData create(Material type, Rarity rarity, int definition, Look look) {
+        return new ItemData(rarity.id(), MaterialTypeChecker.family(type),
+                NO_SEED, 0, definition, look, 0);
+    }
+
+    // ================================
+    // Предметы
+    // ================================
+
+    /**
+     * Читает запись предмета (старый формат - с флагом FLAG_LEGACY)
+     *
+     * @return запись или null, если предмет не наш или записан более новой версией
+     */
+    public static ItemData read(PersistentDataContainer container) {
+        byte[] bytes = container.get(Keys.ITEM_DATA, PersistentDataType.BYTE_ARRAY);
+        if (bytes != null) {
+            return decodeItem(bytes);
+        }
+
+        String legacyId = container.get(Keys.RARITY, PersistentDataType.STRING);
+        if (legacyId == null) {
+            return null;
+        }
+        int flags = FLAG_LEGACY;
+        if (container.getOrDefault(Keys.RARITY_UPGRADE, PersistentDataType.BOOLEAN, false)) {
+            flags |= FLAG_UPGRADE_PREVIEW;
+        }
+        return new ItemData(legacyId, ToolFamily.NONE, 0L, 0, 0, Look.UNKNOWN, flags);
+    }
+
+    /**
+     * Записывает запись предмета и удаляет ключи старого формата
+     */
+    public static void write(PersistentDataContainer container, ItemData data) {
+        container.set(Keys.ITEM_DATA, PersistentDataType.BYTE_ARRAY, encodeItem(data));
+        container.remove(Keys.RARITY);
+        container.remove(Keys.RARITY_UPGRADE);
+    }
+
+    /**
+     * Изменяет запись предмета на месте (ничего не делает для обычных предметов)
+     */
+    public static void update(ItemStack item, UnaryOperator<ItemData> change) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) {
+            return;
+        }
+        ItemData data = read(meta.getPersistentDataContainer());
+        if (data == null) {
+            return;
+        }
+        write(meta.getPersistentDataContainer(), change.apply(data));
+        item.setItemMeta(meta);
+        RarityResolver.invalidateCache();
+    }
+
+    /**
+     * Переписывает предмет старого формата в новый
+     *
+     * @return true, если предмет был изменен
+     */
+    public static boolean migrate(ItemStack item) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) {
+            return false;
+        }
+        ItemData data = read(meta.getPersistentDataContainer());
+        if (data == null || !data.hasFlag(FLAG_LEGACY)) {
+            return false;
+        }
+        write(meta.getPersistentDataContainer(), new ItemData(data.rarityId(),
+                MaterialTypeChecker.family(item.getType()), NO_SEED,
+                0, 0, Look.UNKNOWN, data.flags() & ~FLAG_LEGACY));
+        item.setItemMeta(meta);
+        RarityResolver.invalidateCache();
+        return true;
+    }
+
+    public static byte[] encodeItem(ItemData data) {
+        byte[] id = idBytes(data.rarityId());
+        return ByteBuffer.allocate(ITEM_HEADER + 1 + id.length)
+                .put(VERSION)
+                .put((byte) (data.flags() & ~FLAG_LEGACY))
+                .put((byte) data.family().ordinal())
+                .put((byte) Math.min(data.upgrades(), 0xFF))
+                .putLong(data.seed())
+                .putInt(data.definition())
+                .putInt(data.look().name())
+                .putInt(data.look().lore())
+                .put((byte) Math.min(data.look().loreLines(), 0xFF))
+                .put((byte) id.length)
+                .put(id)
+                .array();
+    }
+
+    public static ItemData decodeItem(byte[] bytes) {
+        int version = bytes.length > 0 ? bytes[0] : 0;
+        int header = switch (version) {
+            case VERSION -> ITEM_HEADER;
+            case 2 -> ITEM_HEADER_V2;
+            case 1 -> ITEM_HEADER_V1;
+            default -> -1;
+        };
+        if (header < 0 || bytes.length < header + 1) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        int flags = buffer.get() & 0xFF;
+        int family = buffer.get() & 0xFF;
+        int upgrades = buffer.get() & 0xFF;
+        long seed = buffer.getLong();
+        int definition = version >= 2 ? buffer.getInt() : 0;
+        Look look = version == VERSION
+                ? new Look(buffer.getInt(), buffer.getInt(), buffer.get() & 0xFF)
+                : Look.UNKNOWN;
+        String rarityId = readId(buffer);
+        if (rarityId == null) {
+            return null;
+        }
+        return new ItemData(rarityId, family < FAMILIES.length ? FAMILIES[family] : ToolFamily.NONE,
+                seed, upgrades, definition, look, flags);
+    }
+
+    // ================================
+    // Стрелы
+    // ================================
+
+    /**
+     * Читает запись стрелы (стрелы, выпущенные до обновления, - из старых ключей)
+     */
+    public static ArrowData readArrow(PersistentDataContainer container) {
+        byte[] bytes = container.get(Keys.ARROW_DATA, PersistentDataType.BYTE_ARRAY);
+        if (bytes != null) {
+            return decodeArrow(bytes);
+        }
+
+        String legacyId = container.get(Keys.BOW_RARITY, PersistentDataType.STRING);
+        if (legacyId == null) {
+            return null;
+        }
+        return new ArrowData(legacyId,
+                container.getOrDefault(Keys.BOW_DAMAGE_MULTIPLIER, PersistentDataType.DOUBLE, 1.0));
+    }
+
+    public static void writeArrow(PersistentDataContainer container, ArrowData data) {
+        container.set(Keys.ARROW_DATA, PersistentDataType.BYTE_ARRAY, encodeArrow(data));
+    }
+
+    public static byte[] encodeArrow(ArrowData data) {
+        byte[] id = idBytes(data.rarityId());
+        return ByteBuffer.allocate(ARROW_HEADER + 1 + id.length)
+                .put(ARROW_VERSION)
+                .put((byte) 0)
+                .putDouble(data.damageMultiplier())
+                .put((byte) id.length)
+                .put(id)
+                .array();
+    }
+
+    public static ArrowData decodeArrow(byte[] bytes) {
+        if (bytes.length < ARROW_HEADER + 1 || bytes[0] != ARROW_VERSION) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+        double damageMultiplier = buffer.getDouble();
+        String rarityId = readId(buffer);
+        return rarityId != null ? new ArrowData(rarityId, damageMultiplier) : null;
+    }
+
+    // ID редкости хранится строкой, а не порядковым номером: порядок редкостей
+    // в конфиге можно менять, и номер тихо указал бы на другую редкость
+    private static byte[] idBytes(String rarityId) {
+        byte[] id = rarityId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("ID редкости длиннее " + MAX_ID_LENGTH + " байт: " + rarityId);
+        }
+        return id;
+    }
+
+    private static String readId(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        if (buffer.remaining() < length) {
+            return null;
+        }
+        String id = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return id;
+    }
+}
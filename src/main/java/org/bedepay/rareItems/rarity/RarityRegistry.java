@@ -0,0 +1,159 @@
+package org.bedepay.rareItems.rarity;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый снимок загруженных редкостей.
+ * <p>
+ * Собирается при загрузке конфига и публикуется одной volatile-ссылкой, поэтому читатели
+ * из любого потока видят согласованные редкости, шансы, цепочку улучшений и флаги без блокировок.
+ * Порядковый номер редкости - ее позиция в секции rarities, он же задает цепочку улучшений.
+ */
+public final class RarityRegistry {
+
+    public static final RarityRegistry EMPTY = new RarityRegistry(List.of(), Map.of(), 0);
+
+    // Редкости с титром при получении и оповещением сервера
+    private static final Set<String> VERY_RARE = Set.of("legendary", "mythic", "divine", "celestial");
+    private static final Set<String> EXTREMELY_RARE = Set.of("divine", "celestial");
+
+    private static final byte FLAG_VERY_RARE = 1;
+    private static final byte FLAG_EXTREMELY_RARE = 1 << 1;
+
+    private static volatile RarityRegistry current = EMPTY;
+
+    private final Rarity[] byOrdinal;
+    private final Map<String, Integer> ordinals;
+    private final double[] craftChances;
+    private final byte[] flags;
+    private final List<Rarity> rarities;
+    private final List<Rarity> sortedByChance;
+    private final int generation;
+
+    private RarityRegistry(List<Rarity> rarities, Map<String, Double> craftChances, int generation) {
+        this.byOrdinal = rarities.toArray(new Rarity[0]);
+        this.rarities = List.of(byOrdinal);
+        this.generation = generation;
+        this.craftChances = new double[byOrdinal.length];
+        this.flags = new byte[byOrdinal.length];
+
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < byOrdinal.length; i++) {
+            String id = byOrdinal[i].id();
+            ordinals.put(id, i);
+            this.craftChances[i] = craftChances.getOrDefault(id, 0.0);
+            if (VERY_RARE.contains(id)) {
+                flags[i] |= FLAG_VERY_RARE;
+            }
+            if (EXTREMELY_RARE.contains(id)) {
+                flags[i] |= FLAG_EXTREMELY_RARE;
+            }
+        }
+        this.ordinals = Map.copyOf(ordinals);
+
+        // От самых редких к самым частым
+        Rarity[] sorted = byOrdinal.clone();
+        Arrays.sort(sorted, Comparator.comparingDouble(rarity -> this.craftChances[this.ordinals.get(rarity.id())]));
+        this.sortedByChance = List.of(sorted);
+    }
+
+    /**
+     * Текущий опубликованный снимок
+     */
+    public static RarityRegistry current() {
+        return current;
+    }
+
+    /**
+     * Собирает и публикует новый снимок (вызывается при загрузке конфига)
+     *
+     * @param rarities     редкости в порядке конфига
+     * @param craftChances шансы крафта по id
+     */
+    public static RarityRegistry publish(List<Rarity> rarities, Map<String, Double> craftChances) {
+        RarityRegistry registry = new RarityRegistry(rarities, craftChances, current.generation + 1);
+        current = registry;
+        return registry;
+    }
+
+    public Rarity byId(String id) {
+        Integer ordinal = id != null ? ordinals.get(id) : null;
+        return ordinal != null ? byOrdinal[ordinal] : null;
+    }
+
+    /**
+     * Порядковый номер редкости или -1
+     */
+    public int ordinal(String id) {
+        Integer ordinal = id != null ? ordinals.get(id) : null;
+        return ordinal != null ? ordinal : -1;
+    }
+
+    public Rarity byOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < byOrdinal.length ? byOrdinal[ordinal] : null;
+    }
+
+    public int count() {
+        return byOrdinal.length;
+    }
+
+    /**
+     * Редкости в порядке конфига
+     */
+    public List<Rarity> rarities() {
+        return rarities;
+    }
+
+    /**
+     * Редкости по возрастанию шанса крафта (самые редкие первыми)
+     */
+    public List<Rarity> sortedByChance() {
+        return sortedByChance;
+    }
+
+    public double craftChance(String id) {
+        int ordinal = ordinal(id);
+        return ordinal >= 0 ? craftChances[ordinal] : 0.0;
+    }
+
+    /**
+     * Следующая редкость в цепочке улучшений или null для максимальной
+     */
+    public Rarity next(String id) {
+        int ordinal = ordinal(id);
+        return ordinal >= 0 ? byOrdinal(ordinal + 1) : null;
+    }
+
+    /**
+     * Предыдущая редкость в цепочке или null для минимальной
+     */
+    public Rarity previous(String id) {
+        int ordinal = ordinal(id);
+        return ordinal > 0 ? byOrdinal[ordinal - 1] : null;
+    }
+
+    public boolean isVeryRare(String id) {
+        return hasFlag(id, FLAG_VERY_RARE);
+    }
+
+    public boolean isExtremelyRare(String id) {
+        return hasFlag(id, FLAG_EXTREMELY_RARE);
+    }
+
+    /**
+     * Номер снимка, растет с каждой публикацией
+     */
+    public int generation() {
+        return generation;
+    }
+
+    private boolean hasFlag(String id, byte flag) {
+        int ordinal = ordinal(id);
+        return ordinal >= 0 && (flags[ordinal] & flag) != 0;
+    }
+}
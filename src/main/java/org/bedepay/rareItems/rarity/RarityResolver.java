@@ -0,0 +1,157 @@
+package org.bedepay.rareItems.rarity;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Единая точка определения редкости предмета.
+ * <p>
+ * Заменяет разрозненные проверки PDC в листенерах: ключ создается один раз,
+ * поиск по ID идет через текущий снимок {@link RarityRegistry}, а недавно проверенные
+ * стаки запоминаются в небольшом слабом кэше, чтобы повторные обращения
+ * в пределах одного тика не клонировали ItemMeta.
+ */
+public final class RarityResolver {
+
+    // Размер кэша - степень двойки для быстрого вычисления слота
+    private static final int CACHE_SIZE = 256;
+    private static final int CACHE_MASK = CACHE_SIZE - 1;
+
+    private static final CacheSlot[] CACHE = new CacheSlot[CACHE_SIZE];
+
+    // Попадания и промахи кэша (для метрик)
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    private static final LongAdder CACHE_MISSES = new LongAdder();
+
+    private RarityResolver() {
+    }
+
+    /**
+     * Получает редкость по ID
+     */
+    public static Rarity byId(String id) {
+        return RarityRegistry.current().byId(id);
+    }
+
+    /**
+     * Получает порядковый номер редкости в конфиге или -1
+     */
+    public static int ordinal(String id) {
+        return RarityRegistry.current().ordinal(id);
+    }
+
+    /**
+     * Получает редкость по порядковому номеру
+     */
+    public static Rarity byOrdinal(int ordinal) {
+        return RarityRegistry.current().byOrdinal(ordinal);
+    }
+
+    /**
+     * Количество загруженных редкостей
+     */
+    public static int count() {
+        return RarityRegistry.current().count();
+    }
+    
+    /**
+     * Получает редкость предмета
+     */
+    public static Rarity resolve(ItemStack item) {
+        CacheSlot slot = lookup(item);
+        return slot != null ? slot.rarity() : null;
+    }
+
+    /**
+     * Проверяет, помечен ли предмет нашим плагином (даже если редкость уже удалена из конфига)
+     */
+    public static boolean hasRarityTag(ItemStack item) {
+        CacheSlot slot = lookup(item);
+        return slot != null && slot.rarityId() != null;
+    }
+
+    /**
+     * Получает сырой ID редкости из предмета
+     */
+    public static String getRarityId(ItemStack item) {
+        CacheSlot slot = lookup(item);
+        return slot != null ? slot.rarityId() : null;
+    }
+
+    /**
+     * Получает запись предмета целиком (null для обычных предметов)
+     */
+    public static RarityCodec.ItemData getData(ItemStack item) {
+        CacheSlot slot = lookup(item);
+        return slot != null ? slot.data() : null;
+    }
+
+    /**
+     * Сбрасывает кэш стаков (например, после изменения предмета на месте)
+     */
+    public static void invalidateCache() {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            CACHE[i] = null;
+        }
+    }
+
+    public static long cacheHits() {
+        return CACHE_HITS.sum();
+    }
+
+    public static long cacheMisses() {
+        return CACHE_MISSES.sum();
+    }
+
+    public static void resetCacheStats() {
+        CACHE_HITS.reset();
+        CACHE_MISSES.reset();
+    }
+
+    private static CacheSlot lookup(ItemStack item) {
+        // Быстрый выход без клонирования меты
+        if (item == null || item.getType() == Material.AIR || !item.hasItemMeta()) {
+            return null;
+        }
+
+        RarityRegistry current = RarityRegistry.current();
+        int tick = Bukkit.getCurrentTick();
+        int position = System.identityHashCode(item) & CACHE_MASK;
+
+        CacheSlot cached = CACHE[position];
+        if (cached != null && cached.matches(item, tick, current.generation())) {
+            CACHE_HITS.increment();
+            return cached;
+        }
+        CACHE_MISSES.increment();
+
+        ItemMeta meta = item.getItemMeta();
+        RarityCodec.ItemData data = meta != null ? RarityCodec.read(meta.getPersistentDataContainer()) : null;
+        String rarityId = data != null ? data.rarityId() : null;
+
+        CacheSlot slot = new CacheSlot(new WeakReference<>(item), item.getType(), tick,
+                current.generation(), data, rarityId, current.byId(rarityId));
+        CACHE[position] = slot;
+        return slot;
+    }
+
+    /**
+     * Слот кэша. Действителен только в пределах тика, в котором был создан:
+     * Bukkit-стаки изменяемы, и держать результат дольше небезопасно.
+     */
+    private record CacheSlot(WeakReference<ItemStack> item, Material type, int tick, int generation,
+                             RarityCodec.ItemData data, String rarityId, Rarity rarity) {
+
+        boolean matches(ItemStack other, int currentTick, int currentGeneration) {
+            return tick == currentTick
+                    && generation == currentGeneration
+                    && item.get() == other
+                    && type == other.getType();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.bedepay.rareItems.rarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Скомпилированная таблица шансов редкости (alias-метод Уокера/Воуза).
+ * <p>
+ * Шансы из конфига задаются в процентах и трактуются как абсолютные: остаток до 100%
+ * означает "без редкости". Таблица строится один раз при загрузке конфига,
+ * а каждый бросок - это один случайный индекс и одно сравнение, независимо от числа редкостей.
+ */
+public final class RarityRoller {
+
+    public static final RarityRoller EMPTY = new RarityRoller(new Rarity[]{null}, new double[]{1.0},
+            new int[]{0}, new double[]{100.0});
+
+    // Отдельный генератор на поток: SplittableRandom быстрее Random и не требует синхронизации
+    private static final ThreadLocal<SplittableRandom> THREAD_RANDOM = ThreadLocal.withInitial(SplittableRandom::new);
+
+    private static volatile Supplier<? extends RandomGenerator> randomSource = THREAD_RANDOM::get;
+
+    // Исходы таблицы: null - предмет остается обычным
+    private final Rarity[] outcomes;
+    private final double[] probability;
+    private final int[] alias;
+
+    // Итоговые шансы исходов в процентах (для команд и отладки)
+    private final double[] chances;
+
+    private RarityRoller(Rarity[] outcomes, double[] probability, int[] alias, double[] chances) {
+        this.outcomes = outcomes;
+        this.probability = probability;
+        this.alias = alias;
+        this.chances = chances;
+    }
+
+    /**
+     * Компилирует таблицу из шансов вида "id редкости → процент".
+     * Неизвестные редкости и неположительные шансы пропускаются.
+     * Если сумма больше 100%, шансы нормализуются и исход "без редкости" исчезает.
+     */
+    public static RarityRoller compile(Map<String, Double> chancesById, List<Rarity> rarities) {
+        List<Rarity> outcomeList = new ArrayList<>();
+        List<Double> weightList = new ArrayList<>();
+        double total = 0.0;
+
+        // Порядок исходов совпадает с порядком редкостей в конфиге
+        for (Rarity rarity : rarities) {
+            Double chance = chancesById.get(rarity.id());
+            if (chance == null || !(chance > 0.0)) {
+                continue;
+            }
+            outcomeList.add(rarity);
+            weightList.add(chance);
+            total += chance;
+        }
+
+        if (outcomeList.isEmpty()) {
+            return EMPTY;
+        }
+
+        if (total < 100.0) {
+            outcomeList.add(null);
+            weightList.add(100.0 - total);
+            total = 100.0;
+        }
+
+        int size = outcomeList.size();
+        double[] chances = new double[size];
+        for (int i = 0; i < size; i++) {
+            chances[i] = weightList.get(i) * 100.0 / total;
+        }
+
+        return build(outcomeList.toArray(new Rarity[0]), chances);
+    }
+
+    private static RarityRoller build(Rarity[] outcomes, double[] chances) {
+        int size = outcomes.length;
+        double[] probability = new double[size];
+        int[] alias = new int[size];
+
+        // Масштабируем так, чтобы средний вес был равен 1
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < size; i++) {
+            scaled[i] = chances[i] * size / 100.0;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            probability[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Остатки из-за погрешности округления заполняют колонку целиком
+        while (largeCount > 0) {
+            int index = large[--largeCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+        while (smallCount > 0) {
+            int index = small[--smallCount];
+            probability[index] = 1.0;
+            alias[index] = index;
+        }
+
+        return new RarityRoller(outcomes, probability, alias, chances);
+    }
+
+    /**
+     * Подменяет источник случайных чисел (например, генератор с фиксированным seed для проверки баланса).
+     * null возвращает потоковый SplittableRandom по умолчанию.
+     */
+    public static void setRandomSource(Supplier<? extends RandomGenerator> source) {
+        randomSource = source != null ? source : THREAD_RANDOM::get;
+    }
+
+    /**
+     * Бросает редкость (null - предмет остается обычным)
+     */
+    public Rarity roll() {
+        return roll(randomSource.get());
+    }
+
+    /**
+     * Бросает редкость указанным генератором
+     */
+    public Rarity roll(RandomGenerator random) {
+        int column = random.nextInt(outcomes.length);
+        return random.nextDouble() < probability[column] ? outcomes[column] : outcomes[alias[column]];
+    }
+
+    /**
+     * Проверяет, может ли таблица выдать хоть какую-то редкость
+     */
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    /**
+     * Итоговый шанс редкости в процентах с учетом нормализации
+     */
+    public double chanceOf(Rarity rarity) {
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == rarity) {
+                return chances[i];
+            }
+        }
+        return 0.0;
+    }
+
+    /**
+     * Исходы таблицы в порядке конфига (null - "без редкости")
+     */
+    public List<Rarity> outcomes() {
+        List<Rarity> result = new ArrayList<>(outcomes.length);
+        for (Rarity outcome : outcomes) {
+            result.add(outcome);
+        }
+        return result;
+    }
+}
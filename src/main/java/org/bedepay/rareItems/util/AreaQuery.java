@@ -0,0 +1,127 @@
+package org.bedepay.rareItems.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Поиск существ в радиусе для способностей по площади.
+ * <p>
+ * Вместо перебора всех существ мира просматриваются только загруженные чанки,
+ * пересекающие радиус, а расстояние сравнивается в квадрате (без sqrt).
+ * Список существ чанка запоминается до конца тика, поэтому несколько способностей
+ * рядом (например, огненные следы нескольких игроков) не опрашивают чанк повторно.
+ * Используется только из основного потока.
+ */
+public final class AreaQuery {
+
+    private static final LivingEntity[] NO_ENTITIES = new LivingEntity[0];
+
+    private static final Map<ChunkKey, LivingEntity[]> CHUNK_CACHE = new HashMap<>();
+    private static int cacheTick = -1;
+
+    // Переиспользуемая локация, чтобы не создавать объект на каждое существо
+    private static final Location SCRATCH = new Location(null, 0, 0, 0);
+
+    private AreaQuery() {
+    }
+
+    /**
+     * Находит живых существ в радиусе от точки
+     *
+     * @param center  центр области
+     * @param radius  радиус в блоках
+     * @param exclude существо, которое нужно пропустить (обычно сам игрок), может быть null
+     */
+    public static List<LivingEntity> nearbyLiving(Location center, double radius, Entity exclude) {
+        World world = center.getWorld();
+        if (world == null) {
+            return List.of();
+        }
+
+        resetIfNewTick();
+
+        double radiusSquared = radius * radius;
+        double x = center.getX();
+        double y = center.getY();
+        double z = center.getZ();
+
+        int minChunkX = ((int) Math.floor(x - radius)) >> 4;
+        int maxChunkX = ((int) Math.floor(x + radius)) >> 4;
+        int minChunkZ = ((int) Math.floor(z - radius)) >> 4;
+        int maxChunkZ = ((int) Math.floor(z + radius)) >> 4;
+
+        List<LivingEntity> result = new ArrayList<>();
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                for (LivingEntity entity : livingInChunk(world, chunkX, chunkZ)) {
+                    if (entity == exclude || !entity.isValid()) {
+                        continue;
+                    }
+
+                    Location location = entity.getLocation(SCRATCH);
+                    double dx = location.getX() - x;
+                    double dy = location.getY() - y;
+                    double dz = location.getZ() - z;
+                    if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                        result.add(entity);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Сбрасывает кэш чанков (например, при выгрузке плагина)
+     */
+    public static void clearCache() {
+        CHUNK_CACHE.clear();
+        cacheTick = -1;
+    }
+
+    private static void resetIfNewTick() {
+        int tick = Bukkit.getCurrentTick();
+        if (tick != cacheTick) {
+            CHUNK_CACHE.clear();
+            cacheTick = tick;
+        }
+    }
+
+    private static LivingEntity[] livingInChunk(World world, int chunkX, int chunkZ) {
+        // Незагруженные чанки не трогаем - иначе запрос загрузит их
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            return NO_ENTITIES;
+        }
+
+        ChunkKey key = new ChunkKey(world.getUID(), chunkX, chunkZ);
+        LivingEntity[] cached = CHUNK_CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+        List<LivingEntity> living = new ArrayList<>();
+        for (Entity entity : chunk.getEntities()) {
+            if (entity instanceof LivingEntity livingEntity) {
+                living.add(livingEntity);
+            }
+        }
+
+        LivingEntity[] entities = living.isEmpty() ? NO_ENTITIES : living.toArray(NO_ENTITIES);
+        CHUNK_CACHE.put(key, entities);
+        return entities;
+    }
+
+    private record ChunkKey(UUID world, int x, int z) {
+    }
+}
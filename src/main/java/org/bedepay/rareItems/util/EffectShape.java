@@ -0,0 +1,89 @@
+package org.bedepay.rareItems.util;
+
+/**
+ * Заранее рассчитанная форма эффекта - смещения точек относительно центра.
+ * <p>
+ * Координаты хранятся одним массивом float (x, y, z подряд), поэтому отрисовка
+ * не вычисляет синусы и не клонирует Location на каждую точку.
+ */
+public final class EffectShape {
+
+    /**
+     * Одна точка в центре
+     */
+    public static final EffectShape POINT = new EffectShape(new float[]{0f, 0f, 0f});
+
+    private final float[] coordinates;
+
+    private EffectShape(float[] coordinates) {
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * Горизонтальное кольцо
+     *
+     * @param points количество точек
+     * @param radius радиус кольца
+     * @param height высота над центром
+     */
+    public static EffectShape ring(int points, double radius, double height) {
+        float[] coordinates = new float[points * 3];
+        for (int i = 0; i < points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            coordinates[i * 3] = (float) (Math.cos(angle) * radius);
+            coordinates[i * 3 + 1] = (float) height;
+            coordinates[i * 3 + 2] = (float) (Math.sin(angle) * radius);
+        }
+        return new EffectShape(coordinates);
+    }
+
+    /**
+     * Кольцо, точки которого колеблются по высоте
+     *
+     * @param frequency шаг фазы между соседними точками (в радианах)
+     * @param amplitude размах колебаний по высоте
+     */
+    public static EffectShape wave(int points, double radius, double frequency, double amplitude) {
+        float[] coordinates = new float[points * 3];
+        for (int i = 0; i < points; i++) {
+            double angle = 2 * Math.PI * i / points;
+            coordinates[i * 3] = (float) (Math.cos(angle) * radius);
+            coordinates[i * 3 + 1] = (float) (Math.sin(i * frequency) * amplitude);
+            coordinates[i * 3 + 2] = (float) (Math.sin(angle) * radius);
+        }
+        return new EffectShape(coordinates);
+    }
+
+    /**
+     * Расходящаяся вверх спираль: радиус и высота растут на step с каждой точкой
+     *
+     * @param angleStep поворот между соседними точками (в радианах)
+     */
+    public static EffectShape spiral(int points, double angleStep, double step) {
+        float[] coordinates = new float[points * 3];
+        for (int i = 0; i < points; i++) {
+            double angle = i * angleStep;
+            double radius = i * step;
+            coordinates[i * 3] = (float) (Math.cos(angle) * radius);
+            coordinates[i * 3 + 1] = (float) (i * step);
+            coordinates[i * 3 + 2] = (float) (Math.sin(angle) * radius);
+        }
+        return new EffectShape(coordinates);
+    }
+
+    public int size() {
+        return coordinates.length / 3;
+    }
+
+    public float x(int point) {
+        return coordinates[point * 3];
+    }
+
+    public float y(int point) {
+        return coordinates[point * 3 + 1];
+    }
+
+    public float z(int point) {
+        return coordinates[point * 3 + 2];
+    }
+}
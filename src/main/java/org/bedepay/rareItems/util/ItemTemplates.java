@@ -0,0 +1,188 @@
+package org.bedepay.rareItems.util;
+
+import com.google.common.collect.Multimap;
+import net.kyori.adventure.text.Component;
+import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.rarity.AbilityTable;
+import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityCodec;
+import org.bedepay.rareItems.rarity.RarityResolver;
+import org.bukkit.Material;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.inventory.EquipmentSlot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Заранее собранные шаблоны оформления предметов для каждой пары (материал, редкость).
+ * <p>
+ * Название, описание и базовые атрибуты зависят только от материала и редкости,
+ * поэтому собираются один раз при загрузке конфига, а applyRarity лишь копирует
+ * готовые неизменяемые значения в мету. При перезагрузке шаблоны неизмененных редкостей
+ * переносятся в новую таблицу, а собираются заново только для новых и измененных.
+ */
+public final class ItemTemplates {
+
+    private static final Material[] MATERIALS = Material.values();
+
+    /**
+     * Версия оформления - увеличивается при изменении кода названия, описания или атрибутов,
+     * чтобы уже выданные предметы перерисовались так же, как после изменения конфига
+     */
+    static final int RENDER_VERSION = 3;
+
+    // [material.ordinal()][порядковый номер редкости]
+    private static volatile Template[][] templates = new Template[MATERIALS.length][];
+
+    // Способности, по которым собрана строка способности в описании
+    private static volatile AbilityTable abilities = AbilityTable.EMPTY;
+
+    private ItemTemplates() {
+    }
+
+    /**
+     * Пересобирает шаблоны для всего оружия и брони под текущий конфиг
+     */
+    public static void rebuild(RareItems plugin) {
+        List<Rarity> rarities = plugin.getConfigManager().getRarities();
+        abilities = plugin.getConfigManager().getAbilityTable();
+        Template[][] previous = templates;
+        Template[][] table = new Template[MATERIALS.length][];
+        int count = 0;
+        int reused = 0;
+
+        for (Material material : MATERIALS) {
+            if (material.isLegacy() || !material.isItem() || !MaterialTypeChecker.isWeaponOrArmor(material)) {
+                continue;
+            }
+
+            Template[] previousRow = previous[material.ordinal()];
+            Template[] row = new Template[rarities.size()];
+            for (int i = 0; i < row.length; i++) {
+                Template template = find(previousRow, material, rarities.get(i));
+                if (template != null) {
+                    reused++;
+                } else {
+                    template = build(material, rarities.get(i));
+                }
+                row[i] = template;
+            }
+            table[material.ordinal()] = row;
+            count += row.length;
+        }
+
+        templates = table;
+
+        if (plugin.getConfigManager().isDebugMode()) {
+            plugin.getLogger().info("[RareItems Debug] Шаблонов предметов: " + count + ", из них перенесено: " + reused);
+        }
+    }
+    
+    /**
+     * Ищет в старой строке шаблон, собранный для того же объекта редкости, тех же типов материала
+     * и той же способности. Порядок редкостей мог измениться, поэтому сверяем по ссылке, а не по индексу.
+     */
+    private static Template find(Template[] row, Material material, Rarity rarity) {
+        if (row == null) {
+            return null;
+        }
+        String ability = ability(material, rarity);
+        for (Template template : row) {
+            if (template != null && template.rarity() == rarity
+                    && template.weapon() == MaterialTypeChecker.isWeapon(material)
+                    && template.armor() == MaterialTypeChecker.isArmor(material)
+                    && Objects.equals(template.ability(), ability)) {
+                return template;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Сбрасывает все шаблоны (будут собираться по требованию)
+     */
+    public static void invalidate() {
+        templates = new Template[MATERIALS.length][];
+    }
+
+    /**
+     * Получает шаблон для материала и редкости, собирая его при первом обращении
+     */
+    static Template get(Material material, Rarity rarity) {
+        Template[][] table = templates;
+        int ordinal = RarityResolver.ordinal(rarity.id());
+
+        Template[] row = table[material.ordinal()];
+        if (row != null && ordinal >= 0 && ordinal < row.length) {
+            Template template = row[ordinal];
+            // Редкость могла устареть после перезагрузки - сверяем по ссылке
+            if (template != null && template.rarity() == rarity) {
+                return template;
+            }
+        }
+
+        Template template = build(material, rarity);
+
+        // Материалы вне оружия/брони (например, выданные командой) кэшируем по требованию
+        if (ordinal >= 0 && RarityResolver.byOrdinal(ordinal) == rarity) {
+            if (row == null || row.length <= ordinal) {
+                row = new Template[RarityResolver.count()];
+                table[material.ordinal()] = row;
+            }
+            if (ordinal < row.length) {
+                row[ordinal] = template;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Строка способности для описания предмета (null - способности нет)
+     */
+    static String ability(Material material, Rarity rarity) {
+        return ItemUtil.describeAbility(abilities.get(rarity, MaterialTypeChecker.family(material)));
+    }
+
+    private static Template build(Material material, Rarity rarity) {
+        boolean weapon = MaterialTypeChecker.isWeapon(material);
+        boolean armor = MaterialTypeChecker.isArmor(material);
+        EquipmentSlot slot = MaterialTypeChecker.slot(material);
+        Map<Attribute, Double> baseAttributes = Map.copyOf(ItemUtil.getBaseAttributes(material));
+        String ability = ability(material, rarity);
+        Component displayName = ItemUtil.createDisplayName(material, rarity);
+        List<Component> lore = List.copyOf(ItemUtil.createLore(rarity, baseAttributes, ability, weapon, armor));
+
+        return new Template(
+                rarity,
+                // Способность видна в описании, поэтому ее изменение тоже требует перерисовки
+                31 * (31 * RENDER_VERSION + rarity.definitionHash()) + Objects.hashCode(ability),
+                material,
+                ability,
+                displayName,
+                lore,
+                new RarityCodec.Look(ItemUtil.fingerprint(displayName), ItemUtil.fingerprint(lore), lore.size()),
+                baseAttributes,
+                ItemUtil.createModifiers(rarity, baseAttributes, weapon, armor, slot),
+                weapon,
+                armor,
+                slot
+        );
+    }
+
+    /**
+     * Неизменяемый шаблон оформления предмета
+     *
+     * @param definition отпечаток, который ставится на предмет при оформлении
+     * @param ability    строка способности в описании (null - способности нет)
+     * @param look       отпечатки названия и описания, которые ставятся на предмет
+     * @param modifiers  модификаторы атрибутов с постоянными UUID (общие для всех предметов шаблона)
+     */
+    record Template(Rarity rarity, int definition, Material material, String ability,
+                    Component displayName, List<Component> lore, RarityCodec.Look look,
+                    Map<Attribute, Double> baseAttributes, Multimap<Attribute, AttributeModifier> modifiers,
+                    boolean weapon, boolean armor, EquipmentSlot slot) {
+    }
+}
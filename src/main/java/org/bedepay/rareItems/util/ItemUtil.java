@@ -1,54 +1,52 @@
 package org.bedepay.rareItems.util;
 
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
-import net.kyori.adventure.text.format.TextColor;
 import net.kyori.adventure.text.format.TextDecoration;
-import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import org.bedepay.rareItems.RareItems;
+import org.bedepay.rareItems.rarity.Ability;
 import org.bedepay.rareItems.rarity.Rarity;
+import org.bedepay.rareItems.rarity.RarityCodec;
+import org.bedepay.rareItems.rarity.RarityResolver;
 import org.bukkit.Material;
-import org.bukkit.NamespacedKey;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeModifier;
 
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.persistence.PersistentDataType;
-import org.bukkit.plugin.Plugin;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Set;
 
 public class ItemUtil {
-    private static final MiniMessage miniMessage = MiniMessage.miniMessage();
+    // Имена модификаторов редкости: до постоянных UUID свои модификаторы узнаются только по ним
+    private static final Set<String> MODIFIER_NAMES = Set.of(
+            "generic.attack_damage",
+            "generic.attack_speed",
+            "generic.armor",
+            "generic.armor_toughness",
+            "rarity.health.bonus",
+            "rarity.speed.bonus",
+            "rarity.luck.bonus"
+    );
     
     /**
-     * Creates a NamespacedKey for the plugin
+     * Применяет редкость без доступа к плагину (без отладочного лога).
+     * Используется там, где плагин не загружен, например в бенчмарках.
      */
-    public static NamespacedKey getKey(Plugin plugin, String key) {
-        return new NamespacedKey(plugin, key);
-    }
-    
-    /**
-     * Проверяет, является ли материал оружием используя Paper API
-     */
-    private static boolean isWeapon(Material material, RareItems plugin) {
-        MaterialTypeChecker checker = new MaterialTypeChecker(plugin);
-        return checker.isWeapon(material);
-    }
-    
-    /**
-     * Проверяет, является ли материал броней используя Paper API
-     */
-    private static boolean isArmor(Material material, RareItems plugin) {
-        MaterialTypeChecker checker = new MaterialTypeChecker(plugin);
-        return checker.isArmor(material);
+    public static ItemStack applyRarity(ItemStack item, Rarity rarity) {
+        return applyRarity(null, item, rarity);
     }
     
     /**
@@ -62,63 +60,90 @@ public static ItemStack applyRarity(RareItems plugin, ItemStack item, Rarity rar
             return clonedItem;
         }
         
-        // Получаем базовые атрибуты предмета из Paper API
-        Map<Attribute, Double> baseAttributes = getBaseAttributes(clonedItem.getType());
-        
-        // Создаем красивое название с градиентом
-        Component displayName = createDisplayName(clonedItem.getType(), rarity);
-        meta.displayName(displayName);
-        
-        // Создаем красивое описание
-        List<Component> lore = createLore(rarity, baseAttributes, clonedItem.getType(), plugin);
-        meta.lore(lore);
-        
-        // Сохраняем редкость в NBT
-        meta.getPersistentDataContainer().set(
-                        getKey(plugin, "rarity"),
-        PersistentDataType.STRING,
-        rarity.id()
-        );
-        
-        // Применяем правильные атрибуты (добавляем к базовым, а не заменяем)
-        applyCorrectAttributes(plugin, meta, clonedItem.getType(), rarity, baseAttributes);
-        
+        render(plugin, clonedItem.getType(), meta, rarity);
         clonedItem.setItemMeta(meta);
         return clonedItem;
     }
     
     /**
-     * Получает редкость предмета из NBT
+     * Оформляет мету предмета под редкость: название, описание, атрибуты и запись в NBT.
+     * Повторный вызов перерисовывает предмет без накопления атрибутов и заменяет только
+     * то, что записал сам плагин: имя с наковальни, строки описания и модификаторы
+     * других плагинов сохраняются.
      */
-    public static Rarity getRarity(ItemStack item) {
-        if (item == null || item.getType() == Material.AIR) {
-            return null;
-        }
+    public static void render(RareItems plugin, Material type, ItemMeta meta, Rarity rarity) {
+        // Название, описание и базовые атрибуты берем из готового шаблона
+        ItemTemplates.Template template = ItemTemplates.get(type, rarity);
+        RarityCodec.ItemData previous = RarityCodec.read(meta.getPersistentDataContainer());
+        boolean rendered = previous != null && !previous.hasFlag(RarityCodec.FLAG_LEGACY);
+        RarityCodec.Look look = rendered ? previous.look() : RarityCodec.Look.UNKNOWN;
         
-        ItemMeta meta = item.getItemMeta();
-        if (meta == null) {
-            return null;
+        if (!look.isKnown() || (meta.hasDisplayName() && fingerprint(meta.displayName()) == look.name())) {
+            meta.displayName(template.displayName());
         }
+        meta.lore(mergeLore(meta.lore(), look, template.lore()));
         
-        String rarityId = meta.getPersistentDataContainer().get(
-                new NamespacedKey("rareitems", "rarity"),
-                PersistentDataType.STRING
-        );
+        // Сохраняем редкость в NBT (число улучшений уже редкого предмета не теряется)
+        RarityCodec.write(meta.getPersistentDataContainer(), rendered
+                ? previous.withRarity(rarity.id(), template.definition(), template.look())
+                : RarityCodec.create(type, rarity, template.definition(), template.look()));
         
-        if (rarityId == null) {
-            return null;
+        // Применяем правильные атрибуты (добавляем к базовым, а не заменяем)
+        applyCorrectAttributes(plugin != null && plugin.getConfigManager().isDebugMode() ? plugin : null,
+                meta, template, rarity, previous);
+    }
+    
+    /**
+     * Заменяет строки описания плагина новыми, строки других плагинов после них сохраняются.
+     * Если свои строки изменили, описание не трогается.
+     */
+    private static List<Component> mergeLore(List<Component> current, RarityCodec.Look look, List<Component> lore) {
+        if (!look.isKnown() || current == null) {
+            return lore;
         }
-        
-        // Получаем плагин через Bukkit для доступа к ConfigManager
-        RareItems plugin = (RareItems) org.bukkit.Bukkit.getPluginManager().getPlugin("RareItems");
-        if (plugin == null) {
-            return null;
+        int owned = look.loreLines();
+        if (current.size() < owned || fingerprint(current.subList(0, owned)) != look.lore()) {
+            return current;
         }
-        
-        return plugin.getConfigManager().getRarityById(rarityId);
+        if (current.size() == owned) {
+            return lore;
+        }
+        List<Component> merged = new ArrayList<>(lore);
+        merged.addAll(current.subList(owned, current.size()));
+        return merged;
+    }
+    
+    /**
+     * Отпечаток компонента, одинаковый между запусками сервера (hashCode стиля зависит от enum)
+     */
+    static int fingerprint(Component component) {
+        return component != null ? GsonComponentSerializer.gson().serialize(component).hashCode() : 0;
+    }
+    
+    static int fingerprint(List<Component> lines) {
+        int hash = 1;
+        for (Component line : lines) {
+            hash = 31 * hash + fingerprint(line);
+        }
+        return hash;
+    }
+    
+    /**
+     * Оформлен ли предмет по устаревшему определению редкости.
+     * Предметы без отпечатка (переписанные из старого формата) сами не перерисовываются.
+     */
+    public static boolean isStale(Material type, RarityCodec.ItemData data, Rarity rarity) {
+        return data.definition() != 0 && data.definition() != ItemTemplates.get(type, rarity).definition();
+    }
+    
+    /**
+     * Получает редкость предмета из NBT
+     */
+    public static Rarity getRarity(ItemStack item) {
+        return RarityResolver.resolve(item);
     }
     
-    private static Component createDisplayName(Material material, Rarity rarity) {
+    static Component createDisplayName(Material material, Rarity rarity) {
         String materialName = material.name().toLowerCase().replace('_', ' ');
         String capitalizedName = capitalizeWords(materialName);
         
@@ -134,7 +159,11 @@ private static Component createDisplayName(Material material, Rarity rarity) {
         return rarityComponent.append(nameComponent);
     }
     
-    private static List<Component> createLore(Rarity rarity, Map<Attribute, Double> baseAttributes, Material material, RareItems plugin) {
+    /**
+     * @param ability строка способности из {@link #describeAbility(Ability)} или null
+     */
+    static List<Component> createLore(Rarity rarity, Map<Attribute, Double> baseAttributes, String ability,
+                                      boolean weapon, boolean armor) {
         List<Component> lore = new ArrayList<>();
         
         // Заголовок редкости с звездами
@@ -148,13 +177,13 @@ private static List<Component> createLore(Rarity rarity, Map<Attribute, Double>
         // Компактная строка с основными бонусами
         List<String> bonuses = new ArrayList<>();
         
-        if (rarity.damageBonus() > 0 && isWeapon(material, plugin)) {
+        if (rarity.damageBonus() > 0 && weapon) {
             // Для оружия показываем итоговый урон
             double baseDamage = baseAttributes.getOrDefault(Attribute.GENERIC_ATTACK_DAMAGE, 0.0);
             double totalDamage = baseDamage + rarity.damageBonus();
             bonuses.add(formatBonus(totalDamage) + "⚔ (+" + formatBonus(rarity.damageBonus()) + ")");
         }
-        if (rarity.armorBonus() > 0 && isArmor(material, plugin)) {
+        if (rarity.armorBonus() > 0 && armor) {
             // Для брони показываем итоговую защиту
             double baseArmor = baseAttributes.getOrDefault(Attribute.GENERIC_ARMOR, 0.0);
             double totalArmor = baseArmor + rarity.armorBonus();
@@ -174,10 +203,9 @@ private static List<Component> createLore(Rarity rarity, Map<Attribute, Double>
             lore.add(bonusLine);
         }
         
-        // Уникальные способности для типа предмета
-        String itemTypeAbility = getItemTypeAbility(material, rarity);
-        if (itemTypeAbility != null) {
-            Component abilityLine = Component.text("✨ " + itemTypeAbility)
+        // Способность из specialAbilities для типа предмета
+        if (ability != null) {
+            Component abilityLine = Component.text("✨ " + ability)
                     .color(NamedTextColor.YELLOW)
                     .decoration(TextDecoration.ITALIC, false);
             lore.add(abilityLine);
@@ -224,6 +252,14 @@ private static String getEffectName(String effectKey) {
             case "levitation" -> "Левитация";
             case "unluck" -> "Неудача";
             case "slow_falling" -> "Медленное падение";
+            case "night_vision" -> "Ночное зрение";
+            case "water_breathing" -> "Подводное дыхание";
+            case "fire_resistance" -> "Огнестойкость";
+            case "regeneration" -> "Регенерация";
+            case "resistance" -> "Сопротивление";
+            case "speed" -> "Скорость";
+            case "jump_boost" -> "Прыгучесть";
+            case "glowing" -> "Свечение";
             default -> effectKey;
         };
     }
@@ -243,125 +279,74 @@ private static String getShortEffectName(String effectKey) {
     }
     
     /**
-     * Получает уникальную способность для типа предмета
+     * Строка способности для описания предмета, собранная из скомпилированной записи AbilityTable
+     *
+     * @return null, если способности нет или у нее нет видимых свойств
      */
-    private static String getItemTypeAbility(Material material, Rarity rarity) {
-        String materialName = material.name();
-        String rarityId = rarity.id();
-        
-        // Мечи - урон и критические удары
-        if (materialName.endsWith("_SWORD")) {
-            return switch (rarityId) {
-                case "uncommon" -> "Острое лезвие (+5% крит)";
-                case "rare" -> "Точный удар (+10% крит)";
-                case "epic" -> "Мастерский удар (+15% крит)";
-                case "legendary" -> "Смертоносное лезвие (+20% крит)";
-                case "mythic" -> "Легендарная заточка (+25% крит)";
-                case "divine" -> "Божественная острота (+30% крит)";
-                case "celestial" -> "Небесное лезвие (+35% крит)";
-                default -> null;
-            };
-        }
-        
-        // Топоры - замедление и урон по щитам
-        if (materialName.endsWith("_AXE")) {
-            return switch (rarityId) {
-                case "uncommon" -> "Тяжелый удар";
-                case "rare" -> "Сокрушение щитов";
-                case "epic" -> "Оглушающий удар";
-                case "legendary" -> "Сокрушение брони";
-                case "mythic" -> "Разрушитель защиты";
-                case "divine" -> "Божественная мощь";
-                case "celestial" -> "Небесный молот";
-                default -> null;
-            };
-        }
-        
-        // Трезубцы - водные эффекты
-        if (materialName.equals("TRIDENT")) {
-            return switch (rarityId) {
-                case "uncommon" -> "Водная стихия";
-                case "rare" -> "Притягивание врагов";
-                case "epic" -> "Молния при броске";
-                case "legendary" -> "Водный вихрь";
-                case "mythic" -> "Буря и молнии";
-                case "divine" -> "Потоп";
-                case "celestial" -> "Владыка морей";
-                default -> null;
-            };
-        }
-        
-        // Луки - скорость и пробивание
-        if (materialName.equals("BOW") || materialName.equals("CROSSBOW")) {
-            return switch (rarityId) {
-                case "uncommon" -> "Быстрая стрельба";
-                case "rare" -> "Точный выстрел";
-                case "epic" -> "Пробивание брони";
-                case "legendary" -> "Огненные стрелы";
-                case "mythic" -> "Взрывные стрелы";
-                case "divine" -> "Божественный выстрел";
-                case "celestial" -> "Небесные стрелы";
-                default -> null;
-            };
-        }
-        
-        // Шлемы - защита головы и видение
-        if (materialName.endsWith("_HELMET")) {
-            return switch (rarityId) {
-                case "uncommon" -> "Ясное зрение";
-                case "rare" -> "Ночное видение";
-                case "epic" -> "Защита от слепоты";
-                case "legendary" -> "Водное дыхание";
-                case "mythic" -> "Огненный иммунитет";
-                case "divine" -> "Телепатия";
-                case "celestial" -> "Всевидящее око";
-                default -> null;
-            };
-        }
-        
-        // Нагрудники - защита тела и регенерация
-        if (materialName.endsWith("_CHESTPLATE")) {
-            return switch (rarityId) {
-                case "uncommon" -> "Прочная защита";
-                case "rare" -> "Быстрое восстановление";
-                case "epic" -> "Отражение урона";
-                case "legendary" -> "Регенерация";
-                case "mythic" -> "Барьер силы";
-                case "divine" -> "Божественная защита";
-                case "celestial" -> "Небесная броня";
-                default -> null;
-            };
+    static String describeAbility(Ability ability) {
+        List<String> parts = new ArrayList<>();
+        double chance = 1.0;
+        
+        if (ability instanceof Ability.Strike strike) {
+            chance = strike.chance();
+            if (strike.critical()) {
+                parts.add("Критический удар");
+            }
+            addEffects(parts, strike.targetEffects());
+            if (strike.stopTarget()) {
+                parts.add("Оглушение");
+            }
+            if (strike.lightningStrikes() > 0) {
+                parts.add(strike.lightningStrikes() > 1 ? "Молнии x" + strike.lightningStrikes() : "Молния");
+            }
+            if (strike.pullRadius() > 0) {
+                parts.add("Притягивание врагов");
+            }
+        } else if (ability instanceof Ability.Shot shot) {
+            if (shot.damageMultiplier() != 1.0) {
+                parts.add("Урон стрел x" + formatBonus(shot.damageMultiplier()));
+            }
+            if (shot.fireTicks() > 0) {
+                parts.add("Огненные стрелы");
+            }
+            if (shot.explosionPower() > 0) {
+                parts.add("Взрывные стрелы");
+            }
+            addEffects(parts, shot.targetEffects());
+            addEffects(parts, shot.shooterEffects());
+        } else if (ability instanceof Ability.Stride stride) {
+            if (stride.frostRadius() >= 0) {
+                parts.add("Ледяная дорожка");
+            }
+            if (stride.fireTrailRadius() > 0) {
+                parts.add("Огненные следы");
+            }
+            if (stride.lavaWalkTicks() > 0) {
+                parts.add("Хождение по лаве");
+            }
+            if (stride.teleportDistance() > 0) {
+                parts.add("Телепорт при приседании");
+            }
+        } else if (ability instanceof Ability.Aura aura) {
+            for (PotionEffect effect : aura.effects()) {
+                parts.add(getEffectName(effect.getType().getKey().getKey()) + " " + getRomanNumeral(effect.getAmplifier() + 1));
+            }
+            for (PotionEffectType type : aura.cleanse()) {
+                parts.add("Защита: " + getEffectName(type.getKey().getKey()));
+            }
         }
         
-        // Поножи - защита ног и мобильность
-        if (materialName.endsWith("_LEGGINGS")) {
-            return switch (rarityId) {
-                case "uncommon" -> "Устойчивость";
-                case "rare" -> "Быстрый бег";
-                case "epic" -> "Высокий прыжок";
-                case "legendary" -> "Неуязвимость к отбросу";
-                case "mythic" -> "Фазовый шаг";
-                case "divine" -> "Телепортация";
-                case "celestial" -> "Измерение пространства";
-                default -> null;
-            };
+        if (parts.isEmpty()) {
+            return null;
         }
-        
-        // Ботинки - передвижение и спецэффекты
-        if (materialName.endsWith("_BOOTS")) {
-            return switch (rarityId) {
-                case "uncommon" -> "Легкая походка";
-                case "rare" -> "Хождение по воде";
-                case "epic" -> "Ледяная дорожка";
-                case "legendary" -> "Огненные следы";
-                case "mythic" -> "Полет";
-                case "divine" -> "Хождение по лаве";
-                case "celestial" -> "Телепорт при приседании";
-                default -> null;
-            };
+        String line = String.join(", ", parts);
+        return chance < 1.0 ? line + " (" + formatBonus(chance * 100) + "%)" : line;
+    }
+    
+    private static void addEffects(List<String> parts, PotionEffect[] effects) {
+        for (PotionEffect effect : effects) {
+            parts.add(getEffectName(effect.getType().getKey().getKey()));
         }
-        
-        return null;
     }
     
     private static String getRomanNumeral(int number) {
@@ -408,7 +393,7 @@ private static String formatBonus(double bonus) {
     /**
      * Получает базовые атрибуты материала используя Paper API
      */
-    private static Map<Attribute, Double> getBaseAttributes(Material material) {
+    static Map<Attribute, Double> getBaseAttributes(Material material) {
         Map<Attribute, Double> attributes = new HashMap<>();
         
         if (!material.isItem()) {
@@ -427,10 +412,9 @@ private static Map<Attribute, Double> getBaseAttributes(Material material) {
             });
             
             // Для брони проверяем все слоты  
-            String name = material.name();
-            if (name.endsWith("_HELMET") || name.endsWith("_CHESTPLATE") || 
-                name.endsWith("_LEGGINGS") || name.endsWith("_BOOTS") || name.equals("SHIELD")) {
-                EquipmentSlot armorSlot = getEquipmentSlot(material);
+            ToolFamily family = MaterialTypeChecker.family(material);
+            if (family.isArmorPiece() || family == ToolFamily.SHIELD) {
+                EquipmentSlot armorSlot = family.slot();
                 var armorModifiers = material.getDefaultAttributeModifiers(armorSlot);
                 
                 armorModifiers.forEach((attribute, modifier) -> {
@@ -448,174 +432,124 @@ private static Map<Attribute, Double> getBaseAttributes(Material material) {
         return attributes;
     }
     
-    private static void applyCorrectAttributes(RareItems plugin, ItemMeta meta, Material material, Rarity rarity, 
-                                              Map<Attribute, Double> baseAttributes) {
-        EquipmentSlot slot = getEquipmentSlot(material);
+    /**
+     * Постоянный UUID модификатора: одинаковые редкие предметы сравниваются равными,
+     * а повторное оформление не меняет NBT
+     */
+    static UUID modifierId(String rarityId, Attribute attribute, EquipmentSlot slot) {
+        String name = Keys.NAMESPACE + ":" + rarityId + ":" + attribute.getKey() + ":" + slot.name();
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Собирает модификаторы атрибутов для пары (материал, редкость). Вызывается только при сборке шаблона.
+     */
+    static Multimap<Attribute, AttributeModifier> createModifiers(Rarity rarity, Map<Attribute, Double> baseAttributes,
+                                                                  boolean weapon, boolean armor, EquipmentSlot slot) {
+        ImmutableMultimap.Builder<Attribute, AttributeModifier> modifiers = ImmutableMultimap.builder();
         
         // Атрибуты для оружия
-        if (isWeapon(material, plugin) && rarity.damageBonus() > 0) {
-            // Сначала удаляем существующие атрибуты урона (если есть)
-            meta.removeAttributeModifier(Attribute.GENERIC_ATTACK_DAMAGE);
-            
-            // Получаем базовый урон из Paper API
+        if (weapon && rarity.damageBonus() > 0) {
+            // Итоговый урон: базовый урон материала + бонус редкости
             double baseDamage = baseAttributes.getOrDefault(Attribute.GENERIC_ATTACK_DAMAGE, 0.0);
-            
-            // Вычисляем итоговый урон: базовый урон + бонус редкости
-            double totalDamage = baseDamage + rarity.damageBonus();
-            
-            // Добавляем атрибут с полным уроном для основной руки
-            meta.addAttributeModifier(
-                    Attribute.GENERIC_ATTACK_DAMAGE,
-                    new AttributeModifier(
-                            UUID.randomUUID(),
-                            "generic.attack_damage",
-                            totalDamage,
-                            AttributeModifier.Operation.ADD_NUMBER,
-                            EquipmentSlot.HAND
-                    )
-            );
-            
-            // Отладочная информация
-            if (plugin.getConfigManager().isDebugMode()) {
-                plugin.getLogger().info(String.format("[RareItems Debug] Оружие: %s | Базовый урон: %.1f | Бонус: %.1f | Итоговый урон: %.1f", 
-                                        material.name(), baseDamage, rarity.damageBonus(), totalDamage));
-            }
+            modifiers.put(Attribute.GENERIC_ATTACK_DAMAGE, modifier(rarity, Attribute.GENERIC_ATTACK_DAMAGE,
+                    "generic.attack_damage", baseDamage + rarity.damageBonus(),
+                    AttributeModifier.Operation.ADD_NUMBER, EquipmentSlot.HAND));
         }
         
-        // Применяем скорость атаки для оружия (важно для корректного урона)
-        if (isWeapon(material, plugin)) {
-            // Удаляем существующий атрибут скорости атаки
-            meta.removeAttributeModifier(Attribute.GENERIC_ATTACK_SPEED);
-            
-            // Получаем базовую скорость атаки из Paper API
+        // Скорость атаки для оружия (важно для корректного урона, без бонусов для баланса PvP)
+        if (weapon) {
             double baseAttackSpeed = baseAttributes.getOrDefault(Attribute.GENERIC_ATTACK_SPEED, 4.0);
-            
-            // Применяем базовую скорость атаки (без бонусов для баланса PvP)
-            meta.addAttributeModifier(
-                    Attribute.GENERIC_ATTACK_SPEED,
-                    new AttributeModifier(
-                            UUID.randomUUID(),
-                            "generic.attack_speed",
-                            baseAttackSpeed,
-                            AttributeModifier.Operation.ADD_NUMBER,
-                            EquipmentSlot.HAND
-                    )
-            );
+            modifiers.put(Attribute.GENERIC_ATTACK_SPEED, modifier(rarity, Attribute.GENERIC_ATTACK_SPEED,
+                    "generic.attack_speed", baseAttackSpeed,
+                    AttributeModifier.Operation.ADD_NUMBER, EquipmentSlot.HAND));
         }
         
         // Атрибуты для брони
-        if (isArmor(material, plugin)) {
+        if (armor) {
             if (rarity.armorBonus() > 0) {
-                // Удаляем существующие атрибуты брони
-                meta.removeAttributeModifier(Attribute.GENERIC_ARMOR);
-                
-                // Получаем базовую защиту из Paper API
                 double baseArmor = baseAttributes.getOrDefault(Attribute.GENERIC_ARMOR, 0.0);
-                
-                // Вычисляем итоговую защиту: базовая + бонус
-                double totalArmor = baseArmor + rarity.armorBonus();
-                
-                meta.addAttributeModifier(
-                        Attribute.GENERIC_ARMOR,
-                        new AttributeModifier(
-                                UUID.randomUUID(),
-                                "generic.armor",
-                                totalArmor,
-                                AttributeModifier.Operation.ADD_NUMBER,
-                                slot
-                        )
-                );
+                modifiers.put(Attribute.GENERIC_ARMOR, modifier(rarity, Attribute.GENERIC_ARMOR,
+                        "generic.armor", baseArmor + rarity.armorBonus(),
+                        AttributeModifier.Operation.ADD_NUMBER, slot));
             }
-            
             if (rarity.toughnessBonus() > 0) {
-                // Удаляем существующие атрибуты прочности
-                meta.removeAttributeModifier(Attribute.GENERIC_ARMOR_TOUGHNESS);
-                
-                // Получаем базовую прочность из Paper API
                 double baseToughness = baseAttributes.getOrDefault(Attribute.GENERIC_ARMOR_TOUGHNESS, 0.0);
-                
-                meta.addAttributeModifier(
-                        Attribute.GENERIC_ARMOR_TOUGHNESS,
-                        new AttributeModifier(
-                                UUID.randomUUID(),
-                                "generic.armor_toughness",
-                                baseToughness + rarity.toughnessBonus(),
-                                AttributeModifier.Operation.ADD_NUMBER,
-                                slot
-                        )
-                );
-            }
-            
-            // Отладочная информация для брони
-            if (plugin.getConfigManager().isDebugMode()) {
-                double baseArmor = baseAttributes.getOrDefault(Attribute.GENERIC_ARMOR, 0.0);
-                double totalArmor = baseArmor + rarity.armorBonus();
-                plugin.getLogger().info(String.format("[RareItems Debug] Броня: %s | Базовая защита: %.1f | Бонус защиты: %.1f | Итоговая защита: %.1f | Прочность: %.1f", 
-                                        material.name(), baseArmor, rarity.armorBonus(), totalArmor, rarity.toughnessBonus()));
+                modifiers.put(Attribute.GENERIC_ARMOR_TOUGHNESS, modifier(rarity, Attribute.GENERIC_ARMOR_TOUGHNESS,
+                        "generic.armor_toughness", baseToughness + rarity.toughnessBonus(),
+                        AttributeModifier.Operation.ADD_NUMBER, slot));
             }
         }
         
         // Универсальные атрибуты (применяются ко всем типам предметов)
         if (rarity.healthBonus() > 0) {
-            meta.addAttributeModifier(
-                    Attribute.GENERIC_MAX_HEALTH,
-                    new AttributeModifier(
-                            UUID.randomUUID(),
-                            "rarity.health.bonus",
-                            rarity.healthBonus(),
-                            AttributeModifier.Operation.ADD_NUMBER,
-                            slot
-                    )
-            );
+            modifiers.put(Attribute.GENERIC_MAX_HEALTH, modifier(rarity, Attribute.GENERIC_MAX_HEALTH,
+                    "rarity.health.bonus", rarity.healthBonus(), AttributeModifier.Operation.ADD_NUMBER, slot));
         }
-        
         if (rarity.speedBonus() > 0) {
-            meta.addAttributeModifier(
-                    Attribute.GENERIC_MOVEMENT_SPEED,
-                    new AttributeModifier(
-                            UUID.randomUUID(),
-                            "rarity.speed.bonus",
-                            rarity.speedBonus(),
-                            AttributeModifier.Operation.MULTIPLY_SCALAR_1,
-                            slot
-                    )
-            );
+            modifiers.put(Attribute.GENERIC_MOVEMENT_SPEED, modifier(rarity, Attribute.GENERIC_MOVEMENT_SPEED,
+                    "rarity.speed.bonus", rarity.speedBonus(), AttributeModifier.Operation.MULTIPLY_SCALAR_1, slot));
         }
-        
         if (rarity.luckBonus() > 0) {
-            meta.addAttributeModifier(
-                    Attribute.GENERIC_LUCK,
-                    new AttributeModifier(
-                            UUID.randomUUID(),
-                            "rarity.luck.bonus",
-                            rarity.luckBonus(),
-                            AttributeModifier.Operation.ADD_NUMBER,
-                            slot
-                    )
-            );
+            modifiers.put(Attribute.GENERIC_LUCK, modifier(rarity, Attribute.GENERIC_LUCK,
+                    "rarity.luck.bonus", rarity.luckBonus(), AttributeModifier.Operation.ADD_NUMBER, slot));
         }
         
-        // Отладочная информация для универсальных атрибутов
-        if (plugin.getConfigManager().isDebugMode() && 
-            (rarity.healthBonus() > 0 || rarity.speedBonus() > 0 || rarity.luckBonus() > 0)) {
-            plugin.getLogger().info(String.format("[RareItems Debug] Универсальные атрибуты %s | Здоровье: +%.1f | Скорость: +%.1f%% | Удача: +%.1f", 
-                                    material.name(), rarity.healthBonus(), rarity.speedBonus() * 100, rarity.luckBonus()));
-        }
+        return modifiers.build();
+    }
+    
+    private static AttributeModifier modifier(Rarity rarity, Attribute attribute, String name, double amount,
+                                              AttributeModifier.Operation operation, EquipmentSlot slot) {
+        return new AttributeModifier(modifierId(rarity.id(), attribute, slot), name, amount, operation, slot);
     }
     
-    private static EquipmentSlot getEquipmentSlot(Material material) {
-        String name = material.name();
-        if (name.endsWith("_HELMET")) {
-            return EquipmentSlot.HEAD;
-        } else if (name.endsWith("_CHESTPLATE")) {
-            return EquipmentSlot.CHEST;
-        } else if (name.endsWith("_LEGGINGS")) {
-            return EquipmentSlot.LEGS;
-        } else if (name.endsWith("_BOOTS")) {
-            return EquipmentSlot.FEET;
-        } else if (name.equals("SHIELD")) {
-            return EquipmentSlot.OFF_HAND;
+    /**
+     * @param debugPlugin плагин для отладочного лога или null, если лог не нужен
+     * @param previous    запись предмета до оформления или null
+     */
+    private static void applyCorrectAttributes(RareItems debugPlugin, ItemMeta meta, ItemTemplates.Template template,
+                                               Rarity rarity, RarityCodec.ItemData previous) {
+        // Снимаем только свои модификаторы, чтобы перерисовка их не копила, а чужие остались
+        Multimap<Attribute, AttributeModifier> current = meta.getAttributeModifiers();
+        if (previous != null && current != null) {
+            // Предметы, оформленные до отпечатков, могли получить модификаторы со случайным UUID
+            boolean byName = previous.hasFlag(RarityCodec.FLAG_LEGACY) || !previous.look().isKnown();
+            for (Map.Entry<Attribute, AttributeModifier> entry : List.copyOf(current.entries())) {
+                AttributeModifier modifier = entry.getValue();
+                boolean own = modifier.getSlot() != null
+                        && modifier.getUniqueId().equals(modifierId(previous.rarityId(), entry.getKey(), modifier.getSlot()));
+                if (own || (byName && MODIFIER_NAMES.contains(modifier.getName()))) {
+                    meta.removeAttributeModifier(entry.getKey(), modifier);
+                }
+            }
+        }
+        
+        // Готовые неизменяемые модификаторы шаблона
+        template.modifiers().forEach(meta::addAttributeModifier);
+        
+        if (debugPlugin == null) {
+            return;
+        }
+        
+        Material material = template.material();
+        Map<Attribute, Double> baseAttributes = template.baseAttributes();
+        
+        if (template.weapon() && rarity.damageBonus() > 0) {
+            double baseDamage = baseAttributes.getOrDefault(Attribute.GENERIC_ATTACK_DAMAGE, 0.0);
+            debugPlugin.getLogger().info(String.format("[RareItems Debug] Оружие: %s | Базовый урон: %.1f | Бонус: %.1f | Итоговый урон: %.1f", 
+                                    material.name(), baseDamage, rarity.damageBonus(), baseDamage + rarity.damageBonus()));
+        }
+        
+        if (template.armor()) {
+            double baseArmor = baseAttributes.getOrDefault(Attribute.GENERIC_ARMOR, 0.0);
+            double totalArmor = baseArmor + rarity.armorBonus();
+            debugPlugin.getLogger().info(String.format("[RareItems Debug] Броня: %s | Базовая защита: %.1f | Бонус защиты: %.1f | Итоговая защита: %.1f | Прочность: %.1f", 
+                                    material.name(), baseArmor, rarity.armorBonus(), totalArmor, rarity.toughnessBonus()));
+        }
+        
+        if (rarity.healthBonus() > 0 || rarity.speedBonus() > 0 || rarity.luckBonus() > 0) {
+            debugPlugin.getLogger().info(String.format("[RareItems Debug] Универсальные атрибуты %s | Здоровье: +%.1f | Скорость: +%.1f%% | Удача: +%.1f", 
+                                    material.name(), rarity.healthBonus(), rarity.speedBonus() * 100, rarity.luckBonus()));
         }
-        return EquipmentSlot.HAND;
     }
-} 
\ No newline at end of file
+}
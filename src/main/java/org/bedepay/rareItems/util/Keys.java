@@ -0,0 +1,30 @@
+package org.bedepay.rareItems.util;
+
+import org.bukkit.NamespacedKey;
+
+/**
+ * Заранее созданные ключи PersistentDataContainer плагина.
+ * Пространство имен совпадает с NamespacedKey(plugin, ...) для плагина "RareItems",
+ * поэтому старые предметы читаются без изменений.
+ */
+public final class Keys {
+
+    public static final String NAMESPACE = "rareitems";
+
+    // Запись предмета и стрелы (см. RarityCodec)
+    public static final NamespacedKey ITEM_DATA = key("data");
+    public static final NamespacedKey ARROW_DATA = key("arrow_data");
+
+    // Ключи старого формата - только для чтения и миграции
+    public static final NamespacedKey RARITY = key("rarity");
+    public static final NamespacedKey RARITY_UPGRADE = key("rarity_upgrade");
+    public static final NamespacedKey BOW_DAMAGE_MULTIPLIER = key("bow_damage_multiplier");
+    public static final NamespacedKey BOW_RARITY = key("bow_rarity");
+
+    private Keys() {
+    }
+
+    private static NamespacedKey key(String key) {
+        return new NamespacedKey(NAMESPACE, key);
+    }
+}
@@ -0,0 +1,161 @@
+package org.bedepay.rareItems.util;
+
+import java.util.Arrays;
+
+/**
+ * Хэш-таблица long → long на примитивных массивах (открытая адресация, линейное пробирование).
+ * Не создает объектов-оберток на каждую запись. Не потокобезопасна.
+ */
+public final class LongLongMap {
+
+    /**
+     * Значение, возвращаемое при отсутствии ключа
+     */
+    public static final long MISSING = Long.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongLongMap() {
+        this(16);
+    }
+
+    public LongLongMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public long get(long key) {
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : MISSING;
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Сохраняет значение и возвращает предыдущее (или MISSING)
+     */
+    public long put(long key, long value) {
+        int slot = slot(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return MISSING;
+    }
+
+    /**
+     * Удаляет ключ и возвращает его значение (или MISSING)
+     */
+    public long remove(long key) {
+        int gap = find(key);
+        if (gap < 0) {
+            return MISSING;
+        }
+        long previous = values[gap];
+
+        // Сдвигаем следующие записи цепочки назад, чтобы не оставлять "надгробий"
+        int index = (gap + 1) & mask;
+        while (used[index]) {
+            int ideal = slot(keys[index]);
+            if (((index - ideal) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+
+        used[gap] = false;
+        size--;
+        return previous;
+    }
+
+    /**
+     * Копия всех ключей (для обхода с удалением)
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int position = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                result[position++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int find(long key) {
+        int slot = slot(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.max(1, (int) (capacity * LOAD_FACTOR));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(capacity, 2);
+    }
+}
@@ -4,137 +4,115 @@
 import org.bukkit.attribute.Attribute;
 import org.bukkit.attribute.AttributeModifier;
 import org.bukkit.inventory.EquipmentSlot;
-import org.bukkit.plugin.Plugin;
 
 import com.google.common.collect.Multimap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Современная утилита для определения типов материалов через Paper API
- * Использует Material.getDefaultAttributeModifiers() для точного определения типов
+ * Классификация материалов (оружие, броня, семейство, слот) через Paper API.
+ * <p>
+ * Таблица по Material.ordinal() собирается один раз при включении и перезагрузке,
+ * после чего все проверки - чтение байта из массива без упаковки и хеширования.
+ * Использует Material.getDefaultAttributeModifiers() для точного определения типов.
  */
-public class MaterialTypeChecker {
-    
-    // Кэширование для производительности
-    private static final Map<Material, Boolean> WEAPON_CACHE = new ConcurrentHashMap<>();
-    private static final Map<Material, Boolean> ARMOR_CACHE = new ConcurrentHashMap<>();
-    private static final Map<Material, Boolean> WEAPON_OR_ARMOR_CACHE = new ConcurrentHashMap<>();
-    
+public final class MaterialTypeChecker {
+
+    private static final Material[] MATERIALS = Material.values();
+    private static final ToolFamily[] FAMILIES = ToolFamily.values();
+
+    // Биты флагов материала
+    private static final byte WEAPON = 1;
+    private static final byte ARMOR = 1 << 1;
+    private static final byte RANGED = 1 << 2;
+    private static final byte HOE = 1 << 3;
+    private static final byte SHIELD = 1 << 4;
+
     // Слоты брони для проверки
     private static final EquipmentSlot[] ARMOR_SLOTS = {
         EquipmentSlot.HEAD, EquipmentSlot.CHEST, EquipmentSlot.LEGS, EquipmentSlot.FEET
     };
-    
-    private final Plugin plugin;
-    
-    public MaterialTypeChecker(Plugin plugin) {
-        this.plugin = plugin;
+
+    private static volatile Table table;
+
+    private MaterialTypeChecker() {
     }
-    
+
     /**
-     * Проверяет, является ли материал оружием, используя Paper API
-     * @param material Материал для проверки
-     * @return true если материал является оружием
+     * Пересобирает таблицу под текущие настройки (вызывается при включении и перезагрузке)
+     *
+     * @param includeHoes считать ли мотыги оружием
      */
-    public boolean isWeapon(Material material) {
-        return WEAPON_CACHE.computeIfAbsent(material, this::calculateIsWeapon);
+    public static void rebuild(boolean includeHoes) {
+        table = Table.build(includeHoes);
     }
-    
+
     /**
-     * Проверяет, является ли материал броней, используя Paper API
-     * @param material Материал для проверки
-     * @return true если материал является броней
+     * Проверяет, является ли материал оружием
      */
-    public boolean isArmor(Material material) {
-        return ARMOR_CACHE.computeIfAbsent(material, this::calculateIsArmor);
+    public static boolean isWeapon(Material material) {
+        return has(material, WEAPON);
     }
-    
+
     /**
-     * Проверяет, является ли материал оружием или броней
-     * @param material Материал для проверки
-     * @return true если материал является оружием или броней
+     * Проверяет, является ли материал броней (включая щит)
      */
-    public boolean isWeaponOrArmor(Material material) {
-        return WEAPON_OR_ARMOR_CACHE.computeIfAbsent(material, mat -> 
-            isWeapon(mat) || isArmor(mat)
-        );
+    public static boolean isArmor(Material material) {
+        return has(material, ARMOR);
     }
-    
+
     /**
-     * Внутренний метод для определения оружия через Paper API
+     * Проверяет, является ли материал оружием или броней
      */
-    private boolean calculateIsWeapon(Material material) {
-        if (!material.isItem()) {
-            return false;
-        }
-        
-        // Получаем стандартные атрибуты материала из Paper API для основной руки
-        Multimap<Attribute, AttributeModifier> attributes = material.getDefaultAttributeModifiers(EquipmentSlot.HAND);
-        
-        // Если у предмета есть атрибут урона - это оружие
-        if (!attributes.get(Attribute.GENERIC_ATTACK_DAMAGE).isEmpty()) {
-            return true;
-        }
-        
-        // Дополнительная проверка для особых случаев оружия
-        return isSpecialWeapon(material);
+    public static boolean isWeaponOrArmor(Material material) {
+        return has(material, (byte) (WEAPON | ARMOR));
     }
-    
+
     /**
-     * Внутренний метод для определения брони через Paper API
+     * Лук или арбалет
      */
-    private boolean calculateIsArmor(Material material) {
-        if (!material.isItem()) {
-            return false;
-        }
-        
-        // Проверяем каждый слот брони
-        for (EquipmentSlot slot : ARMOR_SLOTS) {
-            Multimap<Attribute, AttributeModifier> attributes = material.getDefaultAttributeModifiers(slot);
-            
-            // Проверяем наличие защиты или прочности брони
-            if (!attributes.get(Attribute.GENERIC_ARMOR).isEmpty() || 
-                !attributes.get(Attribute.GENERIC_ARMOR_TOUGHNESS).isEmpty()) {
-                return true;
-            }
-        }
-        
-        // Щит - особый случай брони
-        return material == Material.SHIELD;
+    public static boolean isRanged(Material material) {
+        return has(material, RANGED);
     }
-    
+
+    public static boolean isHoe(Material material) {
+        return has(material, HOE);
+    }
+
+    public static boolean isShield(Material material) {
+        return has(material, SHIELD);
+    }
+
     /**
-     * Проверяет особые случаи оружия, которые могут не иметь стандартного урона
+     * Семейство предмета (NONE для прочих материалов и null)
      */
-    private boolean isSpecialWeapon(Material material) {
-        // Дистанционное оружие
-        if (material == Material.BOW || material == Material.CROSSBOW || material == Material.TRIDENT) {
-            return true;
-        }
-        
-        // Мотыги, если включены в настройках
-        if (material.name().endsWith("_HOE") && 
-            plugin.getConfig().getBoolean("settings.includeHoes", false)) {
-            return true;
-        }
-        
-        return false;
+    public static ToolFamily family(Material material) {
+        return material == null ? ToolFamily.NONE : FAMILIES[table().families[material.ordinal()]];
     }
-    
+
     /**
-     * Очищает кэш (полезно для перезагрузки конфига)
+     * Слот, в котором предмет дает атрибуты
      */
-    public static void clearCache() {
-        WEAPON_CACHE.clear();
-        ARMOR_CACHE.clear();
-        WEAPON_OR_ARMOR_CACHE.clear();
+    public static EquipmentSlot slot(Material material) {
+        return family(material).slot();
     }
-    
+
+    private static boolean has(Material material, byte mask) {
+        return material != null && (table().flags[material.ordinal()] & mask) != 0;
+    }
+
+    private static Table table() {
+        Table current = table;
+        if (current == null) {
+            // Вне плагина (бенчмарки) - настройки по умолчанию
+            current = Table.build(false);
+            table = current;
+        }
+        return current;
+    }
+
     /**
      * Получает информацию о материале для отладки
      */
-    public String getMaterialInfo(Material material) {
+    public static String getMaterialInfo(Material material) {
         if (!material.isItem()) {
             return material.name() + " - НЕ ПРЕДМЕТ";
         }
@@ -175,15 +153,93 @@ public String getMaterialInfo(Material material) {
         
         if (damageModifiers.isEmpty() && !hasArmor) {
             // Проверяем особые случаи
-            if (isSpecialWeapon(material)) {
-                info.append("ОСОБОЕ ОРУЖИЕ");
-            } else if (material == Material.SHIELD) {
+            if (isShield(material)) {
                 info.append("ЩИТ (БРОНЯ)");
+            } else if (isWeapon(material)) {
+                info.append("ОСОБОЕ ОРУЖИЕ");
             } else {
                 info.append("ОБЫЧНЫЙ ПРЕДМЕТ");
             }
         }
         
+        info.append("[").append(family(material)).append("]");
         return info.toString();
     }
-} 
\ No newline at end of file
+
+    /**
+     * Неизменяемая таблица флагов и семейств по Material.ordinal()
+     */
+    private static final class Table {
+        final byte[] flags = new byte[MATERIALS.length];
+        final byte[] families = new byte[MATERIALS.length];
+
+        static Table build(boolean includeHoes) {
+            Table table = new Table();
+            for (Material material : MATERIALS) {
+                if (material.isLegacy() || !material.isItem()) {
+                    continue;
+                }
+
+                ToolFamily family = ToolFamily.of(material);
+                byte flags = 0;
+                if (calculateIsWeapon(material, family, includeHoes)) {
+                    flags |= WEAPON;
+                }
+                if (calculateIsArmor(material, family)) {
+                    flags |= ARMOR;
+                }
+                if (family == ToolFamily.BOW || family == ToolFamily.CROSSBOW) {
+                    flags |= RANGED;
+                }
+                if (family == ToolFamily.HOE) {
+                    flags |= HOE;
+                }
+                if (family == ToolFamily.SHIELD) {
+                    flags |= SHIELD;
+                }
+
+                table.flags[material.ordinal()] = flags;
+                table.families[material.ordinal()] = (byte) family.ordinal();
+            }
+            return table;
+        }
+
+        /**
+         * Оружие - есть урон в основной руке, либо особый случай без урона
+         */
+        private static boolean calculateIsWeapon(Material material, ToolFamily family, boolean includeHoes) {
+            // Дистанционное оружие
+            if (family == ToolFamily.BOW || family == ToolFamily.CROSSBOW || family == ToolFamily.TRIDENT) {
+                return true;
+            }
+
+            // Мотыги имеют урон, но считаются оружием только если включены в настройках
+            if (family == ToolFamily.HOE) {
+                return includeHoes;
+            }
+
+            // Получаем стандартные атрибуты материала из Paper API для основной руки
+            Multimap<Attribute, AttributeModifier> attributes = material.getDefaultAttributeModifiers(EquipmentSlot.HAND);
+            return !attributes.get(Attribute.GENERIC_ATTACK_DAMAGE).isEmpty();
+        }
+
+        /**
+         * Броня - есть защита или прочность в одном из слотов брони
+         */
+        private static boolean calculateIsArmor(Material material, ToolFamily family) {
+            // Щит - особый случай брони
+            if (family == ToolFamily.SHIELD) {
+                return true;
+            }
+
+            for (EquipmentSlot slot : ARMOR_SLOTS) {
+                Multimap<Attribute, AttributeModifier> attributes = material.getDefaultAttributeModifiers(slot);
+                if (!attributes.get(Attribute.GENERIC_ARMOR).isEmpty() ||
+                    !attributes.get(Attribute.GENERIC_ARMOR_TOUGHNESS).isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.bedepay.rareItems.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Проверка имени предмета на вхождение любой из подстрок (без учета регистра).
+ * <p>
+ * Подстроки компилируются при загрузке конфига в автомат Ахо-Корасик: таблица переходов
+ * [состояние][символ алфавита] с уже учтенными ссылками неудачи. Проверка - один проход
+ * по имени без аллокаций, независимо от количества подстрок.
+ */
+public final class NameMatcher {
+
+    public static final NameMatcher EMPTY = new NameMatcher(new char[0], new int[0], new boolean[1]);
+
+    private static final int ASCII = 128;
+
+    // Отсортированный алфавит подстрок и быстрый индекс для ASCII
+    private final char[] alphabet;
+    private final byte[] asciiIndex = new byte[ASCII];
+    // Переходы: delta[состояние * размер алфавита + символ]
+    private final int[] delta;
+    // Состояние завершает хотя бы одну подстроку (с учетом ссылок неудачи)
+    private final boolean[] accepting;
+
+    private NameMatcher(char[] alphabet, int[] delta, boolean[] accepting) {
+        this.alphabet = alphabet;
+        this.delta = delta;
+        this.accepting = accepting;
+        Arrays.fill(asciiIndex, (byte) -1);
+        for (int i = 0; i < alphabet.length && alphabet[i] < ASCII; i++) {
+            asciiIndex[alphabet[i]] = (byte) i;
+        }
+    }
+
+    /**
+     * Компилирует список подстрок (пустые строки пропускаются)
+     */
+    public static NameMatcher compile(List<String> names) {
+        List<char[]> patterns = new ArrayList<>();
+        TreeSet<Character> symbols = new TreeSet<>();
+        for (String name : names) {
+            if (name == null || name.isEmpty()) {
+                continue;
+            }
+            char[] pattern = new char[name.length()];
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = Character.toLowerCase(name.charAt(i));
+                symbols.add(pattern[i]);
+            }
+            patterns.add(pattern);
+        }
+        if (patterns.isEmpty()) {
+            return EMPTY;
+        }
+
+        char[] alphabet = new char[symbols.size()];
+        int index = 0;
+        for (char symbol : symbols) {
+            alphabet[index++] = symbol;
+        }
+        int size = alphabet.length;
+
+        // Бор по подстрокам
+        List<int[]> trie = new ArrayList<>();
+        List<Boolean> terminal = new ArrayList<>();
+        trie.add(newState(size));
+        terminal.add(false);
+        for (char[] pattern : patterns) {
+            int state = 0;
+            for (char symbol : pattern) {
+                int column = Arrays.binarySearch(alphabet, symbol);
+                if (trie.get(state)[column] < 0) {
+                    trie.get(state)[column] = trie.size();
+                    trie.add(newState(size));
+                    terminal.add(false);
+                }
+                state = trie.get(state)[column];
+            }
+            terminal.set(state, true);
+        }
+
+        // Обход в ширину: ссылки неудачи сразу сворачиваются в таблицу переходов
+        int states = trie.size();
+        int[] delta = new int[states * size];
+        int[] fail = new int[states];
+        boolean[] accepting = new boolean[states];
+        for (int i = 0; i < states; i++) {
+            accepting[i] = terminal.get(i);
+        }
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int column = 0; column < size; column++) {
+            int next = trie.get(0)[column];
+            if (next > 0) {
+                delta[column] = next;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            accepting[state] |= accepting[fail[state]];
+            for (int column = 0; column < size; column++) {
+                int next = trie.get(state)[column];
+                int fallback = delta[fail[state] * size + column];
+                if (next > 0) {
+                    fail[next] = fallback;
+                    delta[state * size + column] = next;
+                    queue.add(next);
+                } else {
+                    delta[state * size + column] = fallback;
+                }
+            }
+        }
+
+        return new NameMatcher(alphabet, delta, accepting);
+    }
+
+    private static int[] newState(int size) {
+        int[] state = new int[size];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    public boolean isEmpty() {
+        return alphabet.length == 0;
+    }
+
+    /**
+     * Содержит ли текст хотя бы одну из подстрок
+     */
+    public boolean matches(String text) {
+        if (alphabet.length == 0 || text == null) {
+            return false;
+        }
+        int size = alphabet.length;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int column = column(Character.toLowerCase(text.charAt(i)));
+            state = column < 0 ? 0 : delta[state * size + column];
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int column(char symbol) {
+        if (symbol < ASCII) {
+            return asciiIndex[symbol];
+        }
+        int column = Arrays.binarySearch(alphabet, symbol);
+        return column < 0 ? -1 : column;
+    }
+}
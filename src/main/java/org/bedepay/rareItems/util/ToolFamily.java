@@ -0,0 +1,70 @@
+package org.bedepay.rareItems.util;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.EquipmentSlot;
+
+/**
+ * Семейство предмета (меч, топор, шлем...) и слот, в котором он дает атрибуты.
+ * Порядковый номер хранится в записи предмета (RarityCodec) - новые значения только в конец.
+ */
+public enum ToolFamily {
+    NONE(EquipmentSlot.HAND),
+    SWORD(EquipmentSlot.HAND),
+    AXE(EquipmentSlot.HAND),
+    TRIDENT(EquipmentSlot.HAND),
+    BOW(EquipmentSlot.HAND),
+    CROSSBOW(EquipmentSlot.HAND),
+    HOE(EquipmentSlot.HAND),
+    HELMET(EquipmentSlot.HEAD),
+    CHESTPLATE(EquipmentSlot.CHEST),
+    LEGGINGS(EquipmentSlot.LEGS),
+    BOOTS(EquipmentSlot.FEET),
+    SHIELD(EquipmentSlot.OFF_HAND);
+
+    private final EquipmentSlot slot;
+
+    ToolFamily(EquipmentSlot slot) {
+        this.slot = slot;
+    }
+
+    public EquipmentSlot slot() {
+        return slot;
+    }
+
+    /**
+     * Часть брони (шлем, нагрудник, поножи, ботинки)
+     */
+    public boolean isArmorPiece() {
+        return this == HELMET || this == CHESTPLATE || this == LEGGINGS || this == BOOTS;
+    }
+
+    /**
+     * Определяет семейство по имени материала. Вызывается только при сборке таблицы.
+     */
+    static ToolFamily of(Material material) {
+        String name = material.name();
+        if (name.endsWith("_SWORD")) {
+            return SWORD;
+        } else if (name.endsWith("_AXE")) {
+            return AXE;
+        } else if (name.endsWith("_HOE")) {
+            return HOE;
+        } else if (name.endsWith("_HELMET")) {
+            return HELMET;
+        } else if (name.endsWith("_CHESTPLATE")) {
+            return CHESTPLATE;
+        } else if (name.endsWith("_LEGGINGS")) {
+            return LEGGINGS;
+        } else if (name.endsWith("_BOOTS")) {
+            return BOOTS;
+        }
+
+        return switch (material) {
+            case TRIDENT -> TRIDENT;
+            case BOW -> BOW;
+            case CROSSBOW -> CROSSBOW;
+            case SHIELD -> SHIELD;
+            default -> NONE;
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package org.bedepay.rareItems.rarity;
+
+import net.kyori.adventure.text.format.TextColor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RarityRollerTest {
+
+    private static final int ROLLS = 1_000_000;
+
+    // Допуск по частоте в процентных пунктах (много больше стандартного отклонения на миллионе бросков)
+    private static final double TOLERANCE = 0.2;
+
+    private static final Rarity COMMON = new Rarity("common", "Обычный", TextColor.color(0xFFFFFF));
+    private static final Rarity RARE = new Rarity("rare", "Редкий", TextColor.color(0x5555FF));
+    private static final Rarity EPIC = new Rarity("epic", "Эпический", TextColor.color(0xAA00FF));
+    private static final List<Rarity> RARITIES = List.of(COMMON, RARE, EPIC);
+
+    @Test
+    void frequenciesMatchChances() {
+        RarityRoller roller = RarityRoller.compile(Map.of("common", 20.0, "rare", 5.0, "epic", 1.0), RARITIES);
+
+        assertEquals(Arrays.asList(COMMON, RARE, EPIC, null), roller.outcomes());
+        assertEquals(20.0, roller.chanceOf(COMMON), 1e-9);
+        assertEquals(5.0, roller.chanceOf(RARE), 1e-9);
+        assertEquals(1.0, roller.chanceOf(EPIC), 1e-9);
+        assertEquals(74.0, roller.chanceOf(null), 1e-9);
+
+        Map<Rarity, Double> frequencies = frequencies(roller);
+        assertEquals(20.0, frequencies.get(COMMON), TOLERANCE);
+        assertEquals(5.0, frequencies.get(RARE), TOLERANCE);
+        assertEquals(1.0, frequencies.get(EPIC), TOLERANCE);
+        assertEquals(74.0, frequencies.get(null), TOLERANCE);
+    }
+
+    @Test
+    void remainderGoesToNoneBucket() {
+        RarityRoller roller = RarityRoller.compile(Map.of("rare", 10.0), RARITIES);
+
+        assertFalse(roller.isEmpty());
+        assertEquals(Arrays.asList(RARE, null), roller.outcomes());
+        assertEquals(90.0, frequencies(roller).get(null), TOLERANCE);
+    }
+
+    @Test
+    void exactlyHundredHasNoNoneBucket() {
+        RarityRoller roller = RarityRoller.compile(Map.of("common", 60.0, "rare", 40.0), RARITIES);
+
+        assertEquals(List.of(COMMON, RARE), roller.outcomes());
+        assertEquals(0.0, frequencies(roller).get(null), 0.0);
+    }
+
+    @Test
+    void zeroTotalIsEmpty() {
+        RarityRoller roller = RarityRoller.compile(Map.of("common", 0.0, "rare", -5.0, "unknown", 50.0), RARITIES);
+
+        assertSame(RarityRoller.EMPTY, roller);
+        assertTrue(roller.isEmpty());
+        assertNull(roller.roll(new SplittableRandom(1)));
+        assertTrue(RarityRoller.compile(Map.of(), RARITIES).isEmpty());
+    }
+
+    @Test
+    void totalAboveHundredIsNormalized() {
+        RarityRoller roller = RarityRoller.compile(Map.of("common", 150.0, "rare", 50.0), RARITIES);
+
+        assertEquals(List.of(COMMON, RARE), roller.outcomes());
+        assertEquals(75.0, roller.chanceOf(COMMON), 1e-9);
+        assertEquals(25.0, roller.chanceOf(RARE), 1e-9);
+
+        Map<Rarity, Double> frequencies = frequencies(roller);
+        assertEquals(75.0, frequencies.get(COMMON), TOLERANCE);
+        assertEquals(25.0, frequencies.get(RARE), TOLERANCE);
+        assertEquals(0.0, frequencies.get(null), 0.0);
+    }
+
+    // Частоты исходов в процентах; фиксированный seed делает тест воспроизводимым
+    private static Map<Rarity, Double> frequencies(RarityRoller roller) {
+        SplittableRandom random = new SplittableRandom(42);
+        int common = 0;
+        int rare = 0;
+        int epic = 0;
+        int none = 0;
+        for (int i = 0; i < ROLLS; i++) {
+            Rarity rarity = roller.roll(random);
+            if (rarity == null) {
+                none++;
+            } else if (rarity == COMMON) {
+                common++;
+            } else if (rarity == RARE) {
+                rare++;
+            } else if (rarity == EPIC) {
+                epic++;
+            }
+        }
+
+        // Map.of не принимает null-ключ
+        Map<Rarity, Double> result = new HashMap<>();
+        result.put(COMMON, common * 100.0 / ROLLS);
+        result.put(RARE, rare * 100.0 / ROLLS);
+        result.put(EPIC, epic * 100.0 / ROLLS);
+        result.put(null, none * 100.0 / ROLLS);
+        return result;
+    }
+}